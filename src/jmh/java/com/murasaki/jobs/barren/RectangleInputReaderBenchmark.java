@@ -0,0 +1,56 @@
+package com.murasaki.jobs.barren;
+
+import com.murasaki.jobs.geometry.Rectangle;
+import com.murasaki.jobs.geometry.Workloads;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of parsing the text input format, and the same rectangles in the binary input format.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RectangleInputReaderBenchmark {
+
+    @Param({"SPARSE", "DENSE", "STRIPS", "NESTED", "GRID"})
+    Workloads.Shape shape;
+
+    @Param({"100", "10000"})
+    int count;
+
+    String input;
+    byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        input = Workloads.asInput(Workloads.generate(shape, count, 42));
+        BinaryRectangleWriter writer = new BinaryRectangleWriter();
+        RectangleInputParser.of(input).parse(writer);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(output);
+        binary = output.toByteArray();
+    }
+
+    @Benchmark
+    public Collection<Rectangle> allFromString() {
+        return RectangleInputReader.allFromString(input);
+    }
+
+    @Benchmark
+    public List<Rectangle> fromBinary() throws IOException {
+        List<Rectangle> result = new ArrayList<>(count);
+        RectangleInputParser.of(new ByteArrayInputStream(binary)).parse(RectangleInputReader.collectInto(result));
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package com.murasaki.jobs.geometry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks of printing the areas of many small components: the boxed stream the engines used to join them with,
+ * the primitive string builder, writing straight to a stream, and choosing only the largest ten.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AreasBenchmark {
+
+    @Param({"1000", "300000"})
+    int count;
+
+    long[] areas;
+    long[] copy;
+    OutputStream discard;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        areas = new long[count];
+        for (int i = 0; i < count; i++) {
+            areas[i] = 1 + random.nextInt(240_000);
+        }
+        copy = new long[count];
+        discard = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+    }
+
+    private long[] fresh() {
+        System.arraycopy(areas, 0, copy, 0, count);
+        return copy;
+    }
+
+    @Benchmark
+    public String boxedStream() {
+        long[] sorted = fresh();
+        Arrays.sort(sorted);
+        return Arrays.stream(sorted).mapToObj(String::valueOf).collect(Collectors.joining(" "));
+    }
+
+    @Benchmark
+    public String sortedString() {
+        return Areas.sortedString(fresh());
+    }
+
+    @Benchmark
+    public long[] writeSorted() throws IOException {
+        long[] sorted = fresh();
+        Areas.writeSorted(sorted, discard);
+        return sorted;
+    }
+
+    @Benchmark
+    public long[] largestTen() {
+        return Areas.largest(areas, 10);
+    }
+}
@@ -0,0 +1,51 @@
+package com.murasaki.jobs.geometry;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the single rectangle operations, run against every rectangle of a workload in turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RectangleBenchmark {
+
+    @Param({"SPARSE", "DENSE", "STRIPS", "NESTED", "GRID"})
+    Workloads.Shape shape;
+
+    @Param("1000")
+    int count;
+
+    Rectangle[] rectangles;
+    Rectangle target;
+
+    @Setup
+    public void setUp() {
+        List<Rectangle> workload = Workloads.generate(shape, count, 42);
+        rectangles = workload.toArray(new Rectangle[0]);
+        target = new Rectangle(new Point(100, 150), new Point(299, 449));
+    }
+
+    @Benchmark
+    public void remove(Blackhole blackhole) {
+        for (Rectangle rectangle : rectangles) {
+            Set<Rectangle> remaining = target.remove(rectangle);
+            blackhole.consume(remaining);
+        }
+    }
+
+    @Benchmark
+    public void intersection(Blackhole blackhole) {
+        for (Rectangle rectangle : rectangles) {
+            blackhole.consume(target.intersection(rectangle));
+        }
+    }
+}
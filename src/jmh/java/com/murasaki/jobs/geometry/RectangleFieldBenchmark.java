@@ -0,0 +1,95 @@
+package com.murasaki.jobs.geometry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the phases of processing a workload with {@link RectangleField}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RectangleFieldBenchmark {
+
+    @Param({"SPARSE", "DENSE", "STRIPS", "NESTED", "GRID"})
+    Workloads.Shape shape;
+
+    @Param({"100", "1000"})
+    int count;
+
+    @Param({"0", "256"})
+    int coalesceThreshold;
+
+    List<Rectangle> barren;
+    RectangleField processed;
+
+    @Setup
+    public void setUp() {
+        barren = Workloads.generate(shape, count, 42);
+        processed = removeAll();
+    }
+
+    @Benchmark
+    public RectangleField removeAll() {
+        RectangleField field = new RectangleField(Workloads.FIELD);
+        field.setCoalesceThreshold(coalesceThreshold);
+        field.removeAll(barren);
+        return field;
+    }
+
+    @Benchmark
+    public String areasAfterEachRemoval() {
+        RectangleField field = new RectangleField(Workloads.FIELD);
+        field.removeAll(barren.subList(0, barren.size() / 2));
+        String areas = field.sortedAreasAsStrings();
+        for (Rectangle rectangle : barren.subList(barren.size() / 2, barren.size())) {
+            field.remove(rectangle);
+            areas = field.sortedAreasAsStrings();
+        }
+        return areas;
+    }
+
+    @Benchmark
+    public String trackedAreasAfterEachRemoval() {
+        RectangleField field = new RectangleField(Workloads.FIELD);
+        field.removeAll(barren.subList(0, barren.size() / 2));
+        field.trackComponents();
+        String areas = field.sortedAreasAsStrings();
+        for (Rectangle rectangle : barren.subList(barren.size() / 2, barren.size())) {
+            field.remove(rectangle);
+            areas = field.sortedAreasAsStrings();
+        }
+        return areas;
+    }
+
+    @Benchmark
+    public Set<Set<Rectangle>> adjacentSets() {
+        return processed.adjacentSets();
+    }
+
+    @Benchmark
+    public String sortedAreasAsStrings() {
+        return processed.sortedAreasAsStrings();
+    }
+
+    @Benchmark
+    public FieldQueries buildQueries() {
+        return new FieldQueries(processed.rectangles, Components.of(processed.rectangles));
+    }
+
+    @Benchmark
+    public long queries() {
+        FieldQueries queries = processed.queries(); // built on the first call and kept from then on
+        long total = 0;
+        for (Rectangle rectangle : barren) {
+            total += queries.greenArea(rectangle) + queries.componentAreaAt(rectangle.getUpperRight());
+        }
+        return total;
+    }
+}
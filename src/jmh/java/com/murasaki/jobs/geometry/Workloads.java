@@ -0,0 +1,155 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded generators of barren rectangle lists for benchmarks. The same shape, count and seed always produce the same
+ * rectangles, so results can be compared between runs.
+ */
+public final class Workloads {
+
+    /**
+     * The standard field used by the application.
+     */
+    public static final Rectangle FIELD = new Rectangle(new Point(0, 0), new Point(399, 599));
+
+    /**
+     * Kinds of barren rectangle lists.
+     */
+    public enum Shape {
+
+        /**
+         * Few small rectangles scattered over the field.
+         */
+        SPARSE,
+
+        /**
+         * Large overlapping rectangles covering most of the field.
+         */
+        DENSE,
+
+        /**
+         * Long horizontal and vertical strips one to three squares thick.
+         */
+        STRIPS,
+
+        /**
+         * Concentric rectangular frames, each made of four thin rectangles.
+         */
+        NESTED,
+
+        /**
+         * Small squares on a regular lattice, leaving a grid of green lines.
+         */
+        GRID
+    }
+
+    private Workloads() {
+    }
+
+    /**
+     * Generates a list of barren rectangles within {@link #FIELD}.
+     *
+     * @param shape kind of rectangles to generate
+     * @param count number of rectangles to generate
+     * @param seed  seed of the random generator
+     * @return the generated rectangles
+     */
+    public static List<Rectangle> generate(Shape shape, int count, long seed) {
+        Random random = new Random(seed);
+        int width = FIELD.getUpperRight().getX() + 1;
+        int height = FIELD.getUpperRight().getY() + 1;
+        List<Rectangle> result = new ArrayList<>(count);
+        switch (shape) {
+            case SPARSE:
+                while (result.size() < count) {
+                    result.add(clipped(random.nextInt(width), random.nextInt(height),
+                            1 + random.nextInt(5), 1 + random.nextInt(5)));
+                }
+                break;
+            case DENSE:
+                while (result.size() < count) {
+                    result.add(clipped(random.nextInt(width), random.nextInt(height),
+                            1 + random.nextInt(width / 4), 1 + random.nextInt(height / 4)));
+                }
+                break;
+            case STRIPS:
+                while (result.size() < count) {
+                    int thickness = 1 + random.nextInt(3);
+                    if (random.nextBoolean()) {
+                        int start = random.nextInt(width / 2);
+                        result.add(clipped(start, random.nextInt(height), start + random.nextInt(width), thickness));
+                    } else {
+                        int start = random.nextInt(height / 2);
+                        result.add(clipped(random.nextInt(width), start, thickness, start + random.nextInt(height)));
+                    }
+                }
+                break;
+            case NESTED:
+                while (result.size() < count) {
+                    int centerX = random.nextInt(width);
+                    int centerY = random.nextInt(height);
+                    for (int radius = 2; radius < 60 && result.size() + 4 <= count; radius += 3) {
+                        result.add(clipped(centerX - radius, centerY - radius, 2 * radius + 1, 1)); // bottom
+                        result.add(clipped(centerX - radius, centerY + radius, 2 * radius + 1, 1)); // top
+                        result.add(clipped(centerX - radius, centerY - radius, 1, 2 * radius + 1)); // left
+                        result.add(clipped(centerX + radius, centerY - radius, 1, 2 * radius + 1)); // right
+                    }
+                    if (result.size() + 4 > count) {
+                        while (result.size() < count) {
+                            result.add(clipped(random.nextInt(width), random.nextInt(height), 1, 1));
+                        }
+                    }
+                }
+                break;
+            case GRID:
+                int spacing = Math.max(2, (int) Math.sqrt((double) width * height / count));
+                for (int y = 0; y < height && result.size() < count; y += spacing) {
+                    for (int x = 0; x < width && result.size() < count; x += spacing) {
+                        result.add(clipped(x, y, spacing - 1, spacing - 1));
+                    }
+                }
+                while (result.size() < count) {
+                    result.add(clipped(random.nextInt(width), random.nextInt(height), 1, 1));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown shape: " + shape);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a rectangle of the specified size at the specified lower left corner, clipped to {@link #FIELD}.
+     */
+    private static Rectangle clipped(int x, int y, int width, int height) {
+        int x1 = Math.max(0, Math.min(x, FIELD.getUpperRight().getX()));
+        int y1 = Math.max(0, Math.min(y, FIELD.getUpperRight().getY()));
+        int x2 = Math.max(x1, Math.min(x + width - 1, FIELD.getUpperRight().getX()));
+        int y2 = Math.max(y1, Math.min(y + height - 1, FIELD.getUpperRight().getY()));
+        return new Rectangle(new Point(x1, y1), new Point(x2, y2));
+    }
+
+    /**
+     * Formats rectangles as application input.
+     *
+     * @param rectangles rectangles to format
+     * @return brace-enclosed list of quoted rectangles
+     */
+    public static String asInput(List<Rectangle> rectangles) {
+        StringBuilder builder = new StringBuilder("{");
+        for (Rectangle rectangle : rectangles) {
+            if (builder.length() > 1) {
+                builder.append(',');
+            }
+            builder.append('"')
+                    .append(rectangle.getLowerLeft().getX()).append(' ')
+                    .append(rectangle.getLowerLeft().getY()).append(' ')
+                    .append(rectangle.getUpperRight().getX()).append(' ')
+                    .append(rectangle.getUpperRight().getY()).append('"');
+        }
+        return builder.append('}').toString();
+    }
+}
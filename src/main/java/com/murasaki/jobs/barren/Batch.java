@@ -0,0 +1,88 @@
+package com.murasaki.jobs.barren;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves many problems from one stream, one problem per line, so that a single process can replace a launch per
+ * problem. Lines are solved on a fixed pool of workers while later lines are still being read, and the answers are
+ * written one per line in the order the problems were read. A line that cannot be read is answered with a line
+ * starting with {@code error: } and the rest of the batch carries on.
+ * <p>
+ * Only a bounded window of lines is read ahead of the oldest unanswered one, so a slow problem holds back the reading
+ * instead of letting solved answers and unread lines pile up in memory.
+ */
+final class Batch {
+
+    private static final int WINDOW_PER_WORKER = 4;
+
+    private final Solver solver;
+    private final int workers;
+
+    /**
+     * Creates a batch that solves every problem with the specified solver.
+     *
+     * @param solver  solves every problem
+     * @param workers number of problems solved at once
+     */
+    Batch(Solver solver, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("at least one worker is needed: " + workers);
+        }
+        this.solver = solver;
+        this.workers = workers;
+    }
+
+    /**
+     * Solves every line of the input, writing the answers to the output in the same order.
+     *
+     * @param input  problems, one per line
+     * @param output receives the answers, one per line
+     * @throws IOException if reading the input or writing the output fails
+     */
+    void run(BufferedReader input, Writer output) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            Deque<Future<String>> pending = new ArrayDeque<>();
+            String line;
+            while ((line = input.readLine()) != null) {
+                String problem = line;
+                pending.add(pool.submit(() -> Main.answer(problem, solver)));
+                if (pending.size() >= workers * WINDOW_PER_WORKER) {
+                    write(pending.remove(), output);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.remove(), output);
+            }
+            output.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void write(Future<String> answer, Writer output) throws IOException {
+        if (!answer.isDone()) {
+            output.flush(); // let whoever is reading see the answers so far while this one is still being solved
+        }
+        String text;
+        try {
+            text = answer.get();
+        } catch (ExecutionException e) {
+            text = Main.error(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for an answer");
+        }
+        output.write(text);
+        output.write('\n');
+    }
+}
@@ -0,0 +1,107 @@
+package com.murasaki.jobs.barren;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Converts rectangles into the compact binary input format, which is read by {@link RectangleInputParser} just like
+ * the text format. Rectangles are gathered as they are received and written out together, because the format starts
+ * with the number of rectangles.
+ * <p>
+ * The format is the four {@link #MAGIC magic bytes}, followed by the number of rectangles, followed by each rectangle
+ * in turn. Every number is an unsigned varint: seven bits at a time, least significant first, with the high bit set on
+ * every byte but the last. A rectangle is its lower left X and Y, each as the zigzag encoded difference from the lower
+ * left corner of the rectangle before it (or from the origin for the first one), followed by its width and height
+ * (upper right minus lower left). Typical inputs take around a third of the bytes of the text format, and reading
+ * them involves no digits or punctuation.
+ */
+final class BinaryRectangleWriter implements RectangleSink {
+
+    /**
+     * Bytes that the binary format starts with. The first byte is not valid ASCII, so binary input can never be
+     * mistaken for text input.
+     */
+    static final byte[] MAGIC = {(byte) 0x89, 'B', 'L', '1'};
+
+    private int[] coordinates = new int[64];
+    private int count;
+
+    /**
+     * Receives a rectangle to write.
+     *
+     * @throws IllegalArgumentException if the upper right corner is to the left of or below the lower left corner, as
+     * the width and height are written unsigned
+     */
+    @Override
+    public void accept(int lowerLeftX, int lowerLeftY, int upperRightX, int upperRightY) {
+        if (upperRightX < lowerLeftX) {
+            throw new IllegalArgumentException("upper right corner is to the left of the lower left corner");
+        } else if (upperRightY < lowerLeftY) {
+            throw new IllegalArgumentException("upper right corner is below the lower left corner");
+        }
+        if (count * 4 == coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+        }
+        int i = count * 4;
+        coordinates[i] = lowerLeftX;
+        coordinates[i + 1] = lowerLeftY;
+        coordinates[i + 2] = upperRightX;
+        coordinates[i + 3] = upperRightY;
+        count++;
+    }
+
+    /**
+     * Gets the number of rectangles received so far.
+     *
+     * @return the number of rectangles
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Writes every rectangle received so far in the binary format.
+     *
+     * @param output stream to write to, it is not flushed or closed
+     * @throws IOException if writing fails
+     */
+    void writeTo(OutputStream output) throws IOException {
+        byte[] buffer = new byte[8192];
+        System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+        int length = varint(buffer, MAGIC.length, count);
+        int previousX = 0;
+        int previousY = 0;
+        for (int i = 0; i < count * 4; i += 4) {
+            if (length > buffer.length - 4 * 5) {
+                output.write(buffer, 0, length);
+                length = 0;
+            }
+            length = varint(buffer, length, zigzag(coordinates[i] - previousX));
+            length = varint(buffer, length, zigzag(coordinates[i + 1] - previousY));
+            length = varint(buffer, length, coordinates[i + 2] - coordinates[i]);
+            length = varint(buffer, length, coordinates[i + 3] - coordinates[i + 1]);
+            previousX = coordinates[i];
+            previousY = coordinates[i + 1];
+        }
+        output.write(buffer, 0, length);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Writes an unsigned 32 bit value as a varint.
+     *
+     * @return the position after the varint
+     */
+    private static int varint(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+}
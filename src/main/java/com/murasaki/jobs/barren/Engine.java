@@ -0,0 +1,77 @@
+package com.murasaki.jobs.barren;
+
+import com.murasaki.jobs.geometry.CompressedField;
+import com.murasaki.jobs.geometry.FieldEngine;
+import com.murasaki.jobs.geometry.RasterField;
+import com.murasaki.jobs.geometry.Rectangle;
+import com.murasaki.jobs.geometry.RectangleField;
+import com.murasaki.jobs.geometry.SweepField;
+import com.murasaki.jobs.geometry.TiledField;
+
+import java.util.function.Function;
+
+/**
+ * The field engines that can be selected to process the input.
+ */
+enum Engine {
+
+    /**
+     * Splits the green field into disjoint rectangular fragments.
+     * @see RectangleField
+     */
+    FRAGMENT(RectangleField::new),
+
+    /**
+     * Paints barren rectangles into a bitmap of the field.
+     * @see RasterField
+     */
+    RASTER(RasterField::new),
+
+    /**
+     * Splits the field into tiles that are processed in parallel.
+     * @see TiledField
+     */
+    TILED(TiledField::new),
+
+    /**
+     * Sweeps across the field once after every barren rectangle is known.
+     * @see SweepField
+     */
+    SWEEP(SweepField::new),
+
+    /**
+     * Compresses the field into a grid of cells cut out by the rectangle boundaries, for very large fields.
+     * @see CompressedField
+     */
+    COMPRESSED(CompressedField::new);
+
+    private final Function<Rectangle, FieldEngine> factory;
+
+    Engine(Function<Rectangle, FieldEngine> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Creates a new field using this engine.
+     * @param startingGreen rectangle that is green before anything is removed
+     * @return a new field where everything inside the rectangle is green
+     */
+    FieldEngine create(Rectangle startingGreen) {
+        return factory.apply(startingGreen);
+    }
+
+    /**
+     * Gets the engine with the specified name, ignoring case.
+     * @param name name of the engine
+     * @return the engine with the name
+     * @throws IllegalArgumentException if there is no engine with the name
+     */
+    static Engine fromName(String name) {
+        for (Engine engine : values()) {
+            if (engine.name().equalsIgnoreCase(name)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("unknown engine: " + name);
+    }
+}
@@ -1,21 +1,203 @@
 package com.murasaki.jobs.barren;
 
-import com.murasaki.jobs.geometry.RectangleField;
+import com.murasaki.jobs.geometry.Areas;
+import com.murasaki.jobs.geometry.FieldEngine;
+import com.murasaki.jobs.geometry.FieldMetrics;
 import com.murasaki.jobs.geometry.Point;
 import com.murasaki.jobs.geometry.Rectangle;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class Main {
 
     /**
-     * Reads from standard in, processes the input, prints to standard out.
-     * @throws IOException in the event that reading from standard in fails
+     * Field used when no other size is given, 400 wide by 600 high.
+     */
+    static final Rectangle STANDARD_FIELD = new Rectangle(new Point(0, 0), new Point(399, 599));
+
+    /**
+     * Number of answers cached in memory when only a cache directory is given.
+     */
+    static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /**
+     * Number of connections the server keeps open at once when no other limit is given.
+     */
+    static final int DEFAULT_MAX_CONNECTIONS = 256;
+
+    /**
+     * Reads from standard in as a stream, processes the input, prints to standard out. The engine used to process the
+     * input can be chosen with {@code --engine <name>}, see {@link Engine} for the names. With {@code --file <path>}
+     * the input is read from the file through memory mappings instead of from standard in. The field is 400 by 600
+     * unless another size is given with {@code --field <width>x<height>}. With {@code --profile} the timings of each
+     * phase and a trace of the fragments are printed to standard error, see {@link Profile}. With
+     * {@code --server <port>} a {@link Server} answering one input per line is run on the port instead, processing at
+     * most {@code --max-in-flight <count>} inputs at once over at most {@code --max-connections <count>} connections.
+     * With {@code --batch} every line of the input is a separate problem, solved by a {@link Batch} with
+     * {@code --max-in-flight <count>} workers. Answers can be cached with {@code --cache <entries>} and persisted with
+     * {@code --cache-dir <path>}, see {@link ResultCache}. Input in the binary format is recognized by its magic bytes,
+     * and {@code --convert} writes the input to standard out in that format instead of processing it, see
+     * {@link BinaryRectangleWriter}. With {@code --top <count>} only the largest areas are printed. When metrics are
+     * enabled they are published over JMX. Options that would be ignored by the way of running that the others choose
+     * are rejected, as are counts that are not numbers.
+     * @throws IOException in the event that reading the input fails
      */
     public static void main(String... args) throws IOException {
-        String input = RectangleInputReader.readStdin();
-        String output = process(input);
-        System.out.print(output);
+        Engine engine = null;
+        Path file = null;
+        Rectangle field = null;
+        boolean profile = false;
+        boolean batch = false;
+        boolean convert = false;
+        int serverPort = -1;
+        int maxInFlight = -1;
+        int maxConnections = -1;
+        int cacheSize = 0;
+        Path cacheDirectory = null;
+        int top = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--engine") && i + 1 < args.length) {
+                engine = Engine.fromName(args[++i]);
+            } else if (args[i].equals("--file") && i + 1 < args.length) {
+                file = Paths.get(args[++i]);
+            } else if (args[i].equals("--field") && i + 1 < args.length) {
+                field = parseField(args[++i]);
+            } else if (args[i].equals("--profile")) {
+                profile = true;
+            } else if (args[i].equals("--batch")) {
+                batch = true;
+            } else if (args[i].equals("--convert")) {
+                convert = true;
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheSize = count("--cache", args[++i]);
+            } else if (args[i].equals("--cache-dir") && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (args[i].equals("--top") && i + 1 < args.length) {
+                top = count("--top", args[++i]);
+                if (top < 0) {
+                    throw new IllegalArgumentException("--top needs a count of at least zero: " + top);
+                }
+            } else if (args[i].equals("--server") && i + 1 < args.length) {
+                serverPort = count("--server", args[++i]);
+            } else if (args[i].equals("--max-in-flight") && i + 1 < args.length) {
+                maxInFlight = count("--max-in-flight", args[++i]);
+            } else if (args[i].equals("--max-connections") && i + 1 < args.length) {
+                maxConnections = count("--max-connections", args[++i]);
+            } else {
+                throw new IllegalArgumentException("unknown argument: " + args[i]);
+            }
+        }
+        boolean serving = serverPort >= 0;
+        boolean cached = cacheSize > 0 || cacheDirectory != null;
+        if ((serving ? 1 : 0) + (batch ? 1 : 0) + (convert ? 1 : 0) > 1) {
+            throw new IllegalArgumentException("only one of --server, --batch and --convert can be given");
+        }
+        if (top >= 0 && (profile || batch || convert || serving || cached)) {
+            throw new IllegalArgumentException("--top only applies to a single uncached run");
+        }
+        if (profile && (batch || convert || serving)) {
+            throw new IllegalArgumentException("--profile only applies to a single run");
+        }
+        if (file != null && serving) {
+            throw new IllegalArgumentException("--file does not apply to --server, which reads from its connections");
+        }
+        if (convert && (engine != null || field != null || cached)) {
+            throw new IllegalArgumentException("--engine, --field, --cache and --cache-dir do not apply to --convert");
+        }
+        if (maxInFlight != -1 && !serving && !batch) {
+            throw new IllegalArgumentException("--max-in-flight only applies to --server and --batch");
+        }
+        if (maxConnections != -1 && !serving) {
+            throw new IllegalArgumentException("--max-connections only applies to --server");
+        }
+        if (engine == null) {
+            engine = Engine.FRAGMENT;
+        }
+        if (field == null) {
+            field = STANDARD_FIELD;
+        }
+        if (FieldMetrics.ENABLED) {
+            FieldMetrics.registerMBean();
+        }
+        ResultCache cache = null;
+        if (cacheSize > 0 || cacheDirectory != null) {
+            cache = new ResultCache(engine, field, cacheSize > 0 ? cacheSize : DEFAULT_CACHE_SIZE, cacheDirectory);
+        }
+        Engine chosen = engine;
+        Rectangle chosenField = field;
+        Solver solver = cache != null ? cache : input -> process(input, chosen, chosenField);
+        if (serving) {
+            int limit = maxInFlight > 0 ? maxInFlight : Runtime.getRuntime().availableProcessors() * 2;
+            int connectionLimit = maxConnections > 0 ? maxConnections : DEFAULT_MAX_CONNECTIONS;
+            try (Server server = new Server(serverPort, solver, limit, connectionLimit)) {
+                System.err.println("listening on port " + server.port());
+                server.serve();
+            }
+            return;
+        }
+        if (batch) {
+            int workers = maxInFlight > 0 ? maxInFlight : Runtime.getRuntime().availableProcessors();
+            Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII));
+            try (BufferedReader input = file == null
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII))
+                    : Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+                new Batch(solver, workers).run(input, output);
+            }
+            if (cache != null) {
+                System.err.println(cache);
+            }
+            return;
+        }
+        if (convert) {
+            BinaryRectangleWriter writer = new BinaryRectangleWriter();
+            if (file == null) {
+                RectangleInputParser.of(System.in).parse(writer);
+            } else {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    RectangleInputParser.of(channel).parse(writer);
+                }
+            }
+            OutputStream output = new BufferedOutputStream(System.out);
+            writer.writeTo(output);
+            output.flush();
+            return;
+        }
+        if (file == null) {
+            run(RectangleInputParser.of(System.in), engine, field, profile, cache, top);
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                run(RectangleInputParser.of(channel), engine, field, profile, cache, top);
+            }
+        }
+    }
+
+    /**
+     * Reads the number given to an option.
+     * @param option name of the option, for the message of the exception
+     * @param value value given to the option
+     * @return the number
+     * @throws IllegalArgumentException if the value is not a whole number that fits an int
+     */
+    private static int count(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " needs a whole number: " + value, e);
+        }
     }
 
     /**
@@ -24,13 +206,126 @@ public class Main {
      * @return sorted list of connected areas left in the field
      */
     static String process(String input) {
-        // starting green
-        Rectangle startingGreen = new Rectangle(new Point(0, 0), new Point(399, 599));
-        RectangleField barrens = new RectangleField(startingGreen);
+        return process(input, Engine.FRAGMENT);
+    }
+
+    /**
+     * Interprets input as a formatted list of rectangles to remove from a standard field, using the specified engine.
+     * @param input formatted input of a list of rectangles to remove
+     * @param engine engine used to represent the field
+     * @return sorted list of connected areas left in the field
+     */
+    static String process(String input, Engine engine) {
+        return process(input, engine, STANDARD_FIELD);
+    }
+
+    /**
+     * Interprets input as a formatted list of rectangles to remove from the specified field, using the specified
+     * engine.
+     * @param input formatted input of a list of rectangles to remove
+     * @param engine engine used to represent the field
+     * @param field rectangle that is green before anything is removed
+     * @return sorted list of connected areas left in the field
+     */
+    static String process(String input, Engine engine, Rectangle field) {
+        try {
+            return process(RectangleInputParser.of(input), engine, field);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen when reading from a string
+        }
+    }
+
+    /**
+     * Processes a single input, printing the answer to standard out. Unless the answer comes from the profile or the
+     * cache, the areas are written straight from the engine rather than built into a string first.
+     */
+    private static void run(RectangleInputParser parser, Engine engine, Rectangle field, boolean profile,
+                            ResultCache cache, int top) throws IOException {
+        if (profile) {
+            System.out.print(new Profile(System.err).run(parser, engine, field));
+        } else if (cache != null) {
+            System.out.print(cache.solve(parser));
+        } else {
+            FieldEngine barrens = solve(parser, engine, field);
+            if (top >= 0) {
+                Areas.write(barrens.largestAreas(top), System.out);
+            } else {
+                barrens.writeSortedAreas(System.out);
+            }
+            System.out.flush();
+        }
+    }
+
+    /**
+     * Reads a formatted list of rectangles from the parser and removes each one from the specified field as soon as it
+     * has been read, using the specified engine.
+     * @param parser parser reading a formatted list of rectangles to remove
+     * @param engine engine used to represent the field
+     * @param field rectangle that is green before anything is removed
+     * @return sorted list of connected areas left in the field
+     * @throws IOException in the event that reading the input fails
+     */
+    static String process(RectangleInputParser parser, Engine engine, Rectangle field) throws IOException {
+        return solve(parser, engine, field).sortedAreasAsStrings();
+    }
+
+    private static FieldEngine solve(RectangleInputParser parser, Engine engine, Rectangle field) throws IOException {
+        FieldEngine barrens = engine.create(field);
 
         // barren rectangles
-        Iterable<Rectangle> barrenRectangles = RectangleInputReader.allFromString(input);
-        barrens.removeAll(barrenRectangles);
-        return barrens.sortedAreasAsStrings();
+        parser.parse((lowerLeftX, lowerLeftY, upperRightX, upperRightY) ->
+                barrens.remove(new Rectangle(new Point(lowerLeftX, lowerLeftY), new Point(upperRightX, upperRightY))));
+        return barrens;
+    }
+
+    /**
+     * Answers a single problem, turning input that cannot be read into an answer rather than an exception. Used where
+     * many problems are answered one per line and one bad line must not stop the others.
+     * @param input formatted input of a list of rectangles to remove
+     * @param solver solves the problem
+     * @return sorted list of connected areas left in the field, or {@code error: } followed by why the input could not
+     * be read
+     */
+    static String answer(String input, Solver solver) {
+        try {
+            return solver.solve(input);
+        } catch (IllegalArgumentException e) {
+            return error(e);
+        }
+    }
+
+    /**
+     * Describes a failure as an answer, the same way wherever answers are given one per line.
+     * @param failure why the problem could not be answered
+     * @return {@code error: } followed by the message of the failure, or by its type if it has no message
+     */
+    static String error(Throwable failure) {
+        String message = failure.getMessage();
+        return "error: " + (message != null ? message : failure.getClass().getName());
+    }
+
+    /**
+     * Reads a field size given as {@code <width>x<height>}. The field starts at the origin.
+     * @param size width and height of the field separated by an {@code x}
+     * @return the rectangle covering the field
+     * @throws IllegalArgumentException if the size is not correctly formatted or not positive
+     */
+    static Rectangle parseField(String size) {
+        int separator = size.indexOf('x');
+        if (separator < 0) {
+            throw new IllegalArgumentException("field size must be given as <width>x<height>: " + size);
+        }
+        int width;
+        int height;
+        try {
+            width = Integer.parseInt(size.substring(0, separator));
+            height = Integer.parseInt(size.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("field size must be given as <width>x<height>: " + size, e);
+        }
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("field size must be positive: " + size);
+        }
+        return new Rectangle(new Point(0, 0), new Point(width - 1, height - 1));
     }
 }
@@ -0,0 +1,107 @@
+package com.murasaki.jobs.barren;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Emits a custom Java Flight Recorder event for each phase of a profiled run, so that the phases can be lined up with
+ * everything else in a recording. The events are named {@code com.murasaki.jobs.barren.Phase} and carry the name of
+ * the phase and the number of items it processed.
+ * <p>
+ * The build targets Java 8, which has no {@code jdk.jfr} API to compile against, so the event type is defined at
+ * runtime through {@code jdk.jfr.EventFactory} using reflection. On a runtime without flight recorder support every
+ * method does nothing. Phases are few and long, so the cost of reflection does not matter here.
+ */
+final class PhaseEvents {
+
+    static final String EVENT_NAME = "com.murasaki.jobs.barren.Phase";
+
+    private final Object factory;
+    private final Method newEvent;
+    private final Method begin;
+    private final Method commit;
+    private final Method set;
+
+    private PhaseEvents(Object factory, Method newEvent, Method begin, Method commit, Method set) {
+        this.factory = factory;
+        this.newEvent = newEvent;
+        this.begin = begin;
+        this.commit = commit;
+        this.set = set;
+    }
+
+    /**
+     * Defines the phase event type if the runtime supports flight recorder events.
+     *
+     * @return phase events that are recorded, or that are silently dropped if the runtime has no flight recorder
+     */
+    static PhaseEvents create() {
+        try {
+            Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+            Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+            Class<?> event = Class.forName("jdk.jfr.Event");
+            Constructor<?> annotation = annotationElement.getConstructor(Class.class, Object.class);
+            Constructor<?> field = valueDescriptor.getConstructor(Class.class, String.class);
+            List<Object> annotations = Arrays.asList(
+                    annotation.newInstance(annotationType("jdk.jfr.Name"), EVENT_NAME),
+                    annotation.newInstance(annotationType("jdk.jfr.Label"), "Phase"),
+                    annotation.newInstance(annotationType("jdk.jfr.Category"), new String[]{"Barren Land"}));
+            List<Object> fields = Arrays.asList(
+                    field.newInstance(String.class, "phase"),
+                    field.newInstance(long.class, "items"));
+            Object factory = eventFactory.getMethod("create", List.class, List.class)
+                    .invoke(null, annotations, fields);
+            return new PhaseEvents(factory, eventFactory.getMethod("newEvent"), event.getMethod("begin"),
+                    event.getMethod("commit"), event.getMethod("set", int.class, Object.class));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new PhaseEvents(null, null, null, null, null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Annotation> annotationType(String name) throws ClassNotFoundException {
+        return (Class<? extends Annotation>) Class.forName(name);
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return the event being timed, to be passed to {@link #commit(Object, String, long)}
+     */
+    Object begin() {
+        if (factory == null) {
+            return null;
+        }
+        try {
+            Object event = newEvent.invoke(factory);
+            begin.invoke(event);
+            return event;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Ends a phase and records its event.
+     *
+     * @param event event returned when the phase began
+     * @param phase name of the phase
+     * @param items number of items processed in the phase
+     */
+    void commit(Object event, String phase, long items) {
+        if (event == null) {
+            return;
+        }
+        try {
+            set.invoke(event, 0, phase);
+            set.invoke(event, 1, items);
+            commit.invoke(event);
+        } catch (ReflectiveOperationException e) {
+            // recording is best effort, the profile printed on standard error does not depend on it
+        }
+    }
+}
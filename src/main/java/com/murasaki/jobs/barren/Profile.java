@@ -0,0 +1,156 @@
+package com.murasaki.jobs.barren;
+
+import com.murasaki.jobs.geometry.Areas;
+import com.murasaki.jobs.geometry.FieldEngine;
+import com.murasaki.jobs.geometry.Rectangle;
+import com.murasaki.jobs.geometry.RectangleField;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One-shot diagnosis of a single input. The input is processed in separate phases (parse, remove, components and
+ * format) that are each timed, reported, and emitted as {@link PhaseEvents flight recorder events}. With the fragment
+ * engine the number of fragments is also traced after every barren rectangle, and the report shows a histogram of those
+ * counts along with the rectangles that made the count jump the most.
+ */
+final class Profile {
+
+    private static final int BLOW_UPS = 5;
+    private static final int BAR_WIDTH = 50;
+
+    private final PrintStream report;
+    private final PhaseEvents events = PhaseEvents.create();
+
+    /**
+     * Creates a profile that writes its report to the specified stream.
+     *
+     * @param report stream that the report is printed to, usually standard error
+     */
+    Profile(PrintStream report) {
+        this.report = report;
+    }
+
+    /**
+     * Processes the input phase by phase, printing the report as it goes.
+     *
+     * @param parser parser reading a formatted list of rectangles to remove
+     * @param engine engine used to represent the field
+     * @param field  rectangle that is green before anything is removed
+     * @return sorted list of connected areas left in the field, exactly as an unprofiled run returns it
+     * @throws IOException in the event that reading the input fails
+     */
+    String run(RectangleInputParser parser, Engine engine, Rectangle field) throws IOException {
+        long start = System.nanoTime();
+        Object event = events.begin();
+        List<Rectangle> barren = new ArrayList<>();
+        parser.parse(RectangleInputReader.collectInto(barren));
+        phase(event, "parse", start, barren.size());
+
+        start = System.nanoTime();
+        event = events.begin();
+        FieldEngine barrens = engine.create(field);
+        int[] fragments = null;
+        if (barrens instanceof RectangleField) {
+            RectangleField rectangleField = (RectangleField) barrens;
+            fragments = new int[barren.size() + 1];
+            fragments[0] = rectangleField.fragmentCount();
+            for (int i = 0; i < barren.size(); i++) {
+                rectangleField.remove(barren.get(i));
+                fragments[i + 1] = rectangleField.fragmentCount();
+            }
+        } else {
+            barrens.removeAll(barren);
+        }
+        phase(event, "remove", start, barren.size());
+
+        start = System.nanoTime();
+        event = events.begin();
+        long[] areas = barrens.areas();
+        phase(event, "components", start, areas.length);
+
+        start = System.nanoTime();
+        event = events.begin();
+        String output = Areas.sortedString(areas);
+        phase(event, "format", start, areas.length);
+
+        if (fragments == null) {
+            report.println("fragment counts are only traced by the fragment engine, "
+                    + engine.name().toLowerCase(Locale.ROOT) + " may do its work in the components phase");
+        } else {
+            histogram(fragments);
+            blowUps(fragments, barren);
+        }
+        return output;
+    }
+
+    private void phase(Object event, String phase, long start, long items) {
+        long nanos = System.nanoTime() - start;
+        events.commit(event, phase, items);
+        report.printf("%-12s %12.3f ms %10d items%n", phase, nanos / 1e6, items);
+    }
+
+    /**
+     * Prints how often the fragment count fell into each power of two range after applying a barren rectangle.
+     */
+    private void histogram(int[] fragments) {
+        int[] buckets = new int[33];
+        int lowest = buckets.length;
+        int highest = 0;
+        for (int i = 1; i < fragments.length; i++) {
+            int bucket = 32 - Integer.numberOfLeadingZeros(fragments[i]);
+            buckets[bucket]++;
+            lowest = Math.min(lowest, bucket);
+            highest = Math.max(highest, bucket);
+        }
+        int most = 1;
+        for (int count : buckets) {
+            most = Math.max(most, count);
+        }
+        report.println("fragments after each rectangle:");
+        for (int bucket = lowest; bucket <= highest; bucket++) {
+            String range = bucket <= 1 ? String.valueOf(bucket)
+                    : (1L << (bucket - 1)) + "-" + ((1L << bucket) - 1);
+            char[] bar = new char[(int) ((long) buckets[bucket] * BAR_WIDTH / most)];
+            Arrays.fill(bar, '#');
+            report.printf("%15s %10d %s%n", range, buckets[bucket], new String(bar));
+        }
+    }
+
+    /**
+     * Prints the rectangles that increased the number of fragments the most, largest increase first.
+     */
+    private void blowUps(int[] fragments, List<Rectangle> barren) {
+        int[] worst = new int[BLOW_UPS];
+        int[] growth = new int[BLOW_UPS];
+        int found = 0;
+        for (int i = 0; i < barren.size(); i++) {
+            int grew = fragments[i + 1] - fragments[i];
+            if (grew <= 0 || (found == BLOW_UPS && grew <= growth[found - 1])) {
+                continue;
+            }
+            // insert into the short list, which is kept ordered by growth with earlier rectangles first on ties
+            int position = Math.min(found, BLOW_UPS - 1);
+            while (position > 0 && growth[position - 1] < grew) {
+                worst[position] = worst[position - 1];
+                growth[position] = growth[position - 1];
+                position--;
+            }
+            worst[position] = i;
+            growth[position] = grew;
+            found = Math.min(found + 1, BLOW_UPS);
+        }
+        report.println("largest fragment blow-ups:");
+        for (int i = 0; i < found; i++) {
+            Rectangle rectangle = barren.get(worst[i]);
+            report.printf("%+15d fragments (%d -> %d) from rectangle %d \"%d %d %d %d\"%n",
+                    growth[i], fragments[worst[i]], fragments[worst[i] + 1], worst[i],
+                    rectangle.getLowerLeft().getX(), rectangle.getLowerLeft().getY(),
+                    rectangle.getUpperRight().getX(), rectangle.getUpperRight().getY());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.murasaki.jobs.barren;
+
+import com.murasaki.jobs.geometry.FieldMetrics;
+import com.murasaki.jobs.geometry.Point;
+import com.murasaki.jobs.geometry.Rectangle;
+import com.murasaki.jobs.geometry.RectangleField;
+
+import java.io.IOException;
+
+/**
+ * Entry point of the jar, tuned for one-shot runs where starting the JVM costs more than solving the problem. With no
+ * arguments it reads standard in, removes the rectangles from the standard field with the fragment engine and prints
+ * the areas, touching as few classes as it can on the way: no lambdas or method references (the first one bootstraps
+ * the whole {@code java.lang.invoke} machinery), no streams, no regular expressions, and neither {@link Engine} nor
+ * the option handling of {@link Main}, which pull in far more than this path needs. Any argument hands the run over
+ * to {@link Main}. The metrics MBean is registered just as {@link Main} would when the {@code barren.metrics} property
+ * is set.
+ * <p>
+ * The classes loaded here are also what the class data sharing archive built alongside the jar is trained on, so
+ * adding to this path makes startup slower twice over.
+ */
+public final class QuickMain {
+
+    /**
+     * The same field as {@link Main#STANDARD_FIELD}, kept here because reading that one would load {@link Main}.
+     */
+    private static final Rectangle STANDARD_FIELD = new Rectangle(new Point(0, 0), new Point(399, 599));
+
+    private QuickMain() {
+    }
+
+    /**
+     * Processes standard in like {@link Main} does without options, or runs {@link Main} with the arguments.
+     *
+     * @param args options understood by {@link Main}, if any
+     * @throws IOException in the event that reading the input fails
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length > 0) {
+            Main.main(args);
+            return;
+        }
+        if (FieldMetrics.ENABLED) {
+            FieldMetrics.registerMBean();
+        }
+        RectangleField field = new RectangleField(STANDARD_FIELD);
+        RectangleInputParser.of(System.in).parse(new FieldSink(field));
+        field.writeSortedAreas(System.out);
+        System.out.flush();
+    }
+
+    /**
+     * Removes each rectangle from the field as soon as it is read.
+     */
+    private static final class FieldSink implements RectangleSink {
+
+        private final RectangleField field;
+
+        FieldSink(RectangleField field) {
+            this.field = field;
+        }
+
+        @Override
+        public void accept(int lowerLeftX, int lowerLeftY, int upperRightX, int upperRightY) {
+            field.remove(new Rectangle(new Point(lowerLeftX, lowerLeftY), new Point(upperRightX, upperRightY)));
+        }
+    }
+}
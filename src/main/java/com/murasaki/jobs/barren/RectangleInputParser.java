@@ -0,0 +1,392 @@
+package com.murasaki.jobs.barren;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single pass parser for the rectangle input format. Bytes are read straight into primitive coordinates and each
+ * rectangle is passed to a {@link RectangleSink} as soon as it has been read, so the input is never held as a string.
+ * <p>
+ * The format is an open-brace, followed by any number of comma separated rectangles, followed by a closing-brace.
+ * Each rectangle is a quote mark, followed by 4 space separated numbers, followed by another quote mark. The numbers
+ * indicate lower left X, lower left Y, upper right X, upper right Y in that order.
+ * <p>
+ * Input that starts with the {@link BinaryRectangleWriter#MAGIC magic bytes} of the binary format is read as binary
+ * instead, so either format can be given anywhere that a whole list of rectangles is read.
+ */
+final class RectangleInputParser {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAPPING_SIZE = 1 << 26;
+    private static final int END_OF_INPUT = -1;
+
+    /**
+     * Supplies the input to the parser as a sequence of buffers.
+     */
+    @FunctionalInterface
+    interface ByteSource {
+
+        /**
+         * Gets the next part of the input. The parser is done with the previous buffer once this is called.
+         *
+         * @return a buffer with the next bytes of input between its position and limit, or {@code null} at the end of
+         * the input
+         * @throws IOException if reading the input fails
+         */
+        ByteBuffer next() throws IOException;
+    }
+
+    /**
+     * Reads a stream through a reusable buffer. The sources that {@link Main} reads from are classes rather than
+     * lambdas, so that a one-shot run does not pay for bootstrapping lambdas before reading its input.
+     */
+    private static final class StreamSource implements ByteSource {
+
+        private final InputStream inputStream;
+        private final byte[] bytes = new byte[BUFFER_SIZE];
+        private final ByteBuffer wrapper = ByteBuffer.wrap(bytes);
+
+        StreamSource(InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public ByteBuffer next() throws IOException {
+            int read = inputStream.read(bytes);
+            if (read < 0) {
+                return null;
+            }
+            wrapper.clear();
+            wrapper.limit(read);
+            return wrapper;
+        }
+    }
+
+    /**
+     * Maps a file a chunk at a time.
+     */
+    private static final class MappedSource implements ByteSource {
+
+        private final FileChannel channel;
+        private final int mappingSize;
+        private long mapped;
+
+        MappedSource(FileChannel channel, int mappingSize) {
+            this.channel = channel;
+            this.mappingSize = mappingSize;
+        }
+
+        @Override
+        public ByteBuffer next() throws IOException {
+            long remaining = channel.size() - mapped;
+            if (remaining <= 0) {
+                return null;
+            }
+            long length = Math.min(remaining, mappingSize);
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, mapped, length);
+            mapped += length;
+            return mapping;
+        }
+    }
+
+    private final ByteSource source;
+    private ByteBuffer buffer;
+    private int bufferStart;
+    private long consumed;
+    private boolean exhausted;
+    private final int[] coordinates = new int[4];
+
+    /**
+     * Creates a parser reading from the specified source.
+     *
+     * @param source source of the input bytes
+     */
+    RectangleInputParser(ByteSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Creates a parser reading from the specified stream through a reusable buffer.
+     *
+     * @param inputStream stream to read from
+     * @return a parser for the stream
+     */
+    static RectangleInputParser of(InputStream inputStream) {
+        return new RectangleInputParser(new StreamSource(inputStream));
+    }
+
+    /**
+     * Creates a parser reading the specified file through memory mappings. The file is mapped a chunk at a time, so
+     * files larger than a single mapping can hold are read without ever copying them onto the heap.
+     *
+     * @param channel open channel of the file to read, it must stay open until parsing is done
+     * @return a parser for the file
+     */
+    static RectangleInputParser of(FileChannel channel) {
+        return of(channel, MAPPING_SIZE);
+    }
+
+    /**
+     * Creates a parser reading the specified file through memory mappings of at most the specified size.
+     *
+     * @param channel     open channel of the file to read
+     * @param mappingSize largest number of bytes mapped at once
+     * @return a parser for the file
+     */
+    static RectangleInputParser of(FileChannel channel, int mappingSize) {
+        return new RectangleInputParser(new MappedSource(channel, mappingSize));
+    }
+
+    /**
+     * Creates a parser reading the specified string.
+     *
+     * @param string string to read
+     * @return a parser for the string
+     */
+    static RectangleInputParser of(String string) {
+        ByteBuffer[] remaining = {ByteBuffer.wrap(string.getBytes(StandardCharsets.US_ASCII))};
+        return new RectangleInputParser(() -> {
+            ByteBuffer next = remaining[0];
+            remaining[0] = null;
+            return next;
+        });
+    }
+
+    /**
+     * Parses a complete brace-enclosed list of rectangles, passing each one to the sink as it is read. The list must
+     * be followed by the end of a line or the end of the input. Binary input is recognized by its magic bytes, and must
+     * be followed by the end of the input.
+     *
+     * @param sink receives the coordinates of each rectangle
+     * @throws IllegalArgumentException if the input is not correctly formatted, the message gives the position of
+     * the first byte that could not be accepted
+     * @throws IOException if reading the input fails
+     */
+    void parse(RectangleSink sink) throws IOException {
+        if (peek() == (BinaryRectangleWriter.MAGIC[0] & 0xff)) {
+            binary(sink);
+            return;
+        }
+        expect('{');
+        rectangle(sink);
+        while (true) {
+            long position = position();
+            int next = read();
+            if (next == '}') {
+                break;
+            } else if (next != ',') {
+                throw unexpected(next, position, "',' or '}'");
+            }
+            if (peek() == '}') {
+                read(); // a trailing comma before the closing brace is accepted
+                break;
+            }
+            rectangle(sink);
+        }
+        endOfLine();
+    }
+
+    /**
+     * Parses a single quoted rectangle that makes up the whole input.
+     *
+     * @param sink receives the coordinates of the rectangle
+     * @throws IllegalArgumentException if the input is not correctly formatted
+     * @throws IOException if reading the input fails
+     */
+    void parseRectangle(RectangleSink sink) throws IOException {
+        rectangle(sink);
+        endOfLine();
+    }
+
+    private void rectangle(RectangleSink sink) throws IOException {
+        long start = position();
+        expect('"');
+        for (int i = 0; i < 4; i++) {
+            if (i > 0) {
+                expect(' ');
+            }
+            coordinates[i] = number();
+        }
+        if (peek() == ' ') {
+            read(); // a single trailing space inside the quotes is accepted
+        }
+        expect('"');
+        if (coordinates[2] < coordinates[0]) {
+            throw new IllegalArgumentException(
+                    "upper right corner is to the left of the lower left corner in rectangle at position " + start);
+        } else if (coordinates[3] < coordinates[1]) {
+            throw new IllegalArgumentException(
+                    "upper right corner is below the lower left corner in rectangle at position " + start);
+        }
+        sink.accept(coordinates[0], coordinates[1], coordinates[2], coordinates[3]);
+    }
+
+    /**
+     * Parses input in the binary format described by {@link BinaryRectangleWriter}.
+     */
+    private void binary(RectangleSink sink) throws IOException {
+        for (byte magic : BinaryRectangleWriter.MAGIC) {
+            long position = position();
+            if (read() != (magic & 0xff)) {
+                throw new IllegalArgumentException("unknown binary format at position " + position);
+            }
+        }
+        long count = varint();
+        long x = 0;
+        long y = 0;
+        for (long i = 0; i < count; i++) {
+            long start = position();
+            x += unzigzag(varint());
+            y += unzigzag(varint());
+            long right = x + varint();
+            long top = y + varint();
+            if (x < 0 || y < 0 || right > Integer.MAX_VALUE || top > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("rectangle at position " + start + " is out of range");
+            }
+            sink.accept((int) x, (int) y, (int) right, (int) top);
+        }
+        long position = position();
+        if (read() != END_OF_INPUT) {
+            throw new IllegalArgumentException(
+                    "expected the end of the input at position " + position + " after " + count + " rectangles");
+        }
+    }
+
+    /**
+     * Reads an unsigned 32 bit varint.
+     */
+    private long varint() throws IOException {
+        long start = position();
+        long value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int next = read();
+            if (next == END_OF_INPUT) {
+                throw unexpected(next, position(), "the rest of a number");
+            }
+            value |= (long) (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                if (value > 0xFFFFFFFFL) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("number at position " + start + " is too large");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int number() throws IOException {
+        long start = position();
+        int next = peek();
+        if (next < '0' || next > '9') {
+            throw unexpected(next, start, "a digit");
+        }
+        long value = 0;
+        while (next >= '0' && next <= '9') {
+            read();
+            value = value * 10 + (next - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("number at position " + start + " is too large");
+            }
+            next = peek();
+        }
+        return (int) value;
+    }
+
+    private void endOfLine() throws IOException {
+        long position = position();
+        int next = read();
+        if (next == '\r') {
+            position = position();
+            next = read();
+        }
+        if (next != '\n' && next != END_OF_INPUT) {
+            throw unexpected(next, position, "the end of the line");
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        long position = position();
+        int next = read();
+        if (next != expected) {
+            throw unexpected(next, position, "'" + expected + "'");
+        }
+    }
+
+    private IllegalArgumentException unexpected(int found, long position, String expected) {
+        if (found == END_OF_INPUT) {
+            return new IllegalArgumentException(
+                    "expected " + expected + " at position " + position + " but reached the end of the input");
+        }
+        return new IllegalArgumentException(
+                "expected " + expected + " at position " + position + " but found '" + (char) found + "'");
+    }
+
+    /**
+     * Gets the next byte without consuming it.
+     *
+     * @return the next byte, or {@link #END_OF_INPUT}
+     */
+    private int peek() throws IOException {
+        if (buffer == null || !buffer.hasRemaining()) {
+            if (!advance()) {
+                return END_OF_INPUT;
+            }
+        }
+        return buffer.get(buffer.position()) & 0xff;
+    }
+
+    /**
+     * Consumes the next byte.
+     *
+     * @return the byte consumed, or {@link #END_OF_INPUT}
+     */
+    private int read() throws IOException {
+        if (buffer == null || !buffer.hasRemaining()) {
+            if (!advance()) {
+                return END_OF_INPUT;
+            }
+        }
+        return buffer.get() & 0xff;
+    }
+
+    /**
+     * Moves on to the next non-empty buffer from the source.
+     *
+     * @return {@code false} if the input is exhausted
+     */
+    private boolean advance() throws IOException {
+        while (!exhausted) {
+            if (buffer != null) {
+                consumed += buffer.position() - bufferStart;
+            }
+            buffer = source.next();
+            if (buffer == null) {
+                exhausted = true;
+            } else {
+                bufferStart = buffer.position();
+                if (buffer.hasRemaining()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the position of the next byte, counted from the start of the input.
+     */
+    private long position() {
+        if (buffer == null) {
+            return consumed;
+        }
+        return consumed + buffer.position() - bufferStart;
+    }
+}
@@ -3,19 +3,14 @@ package com.murasaki.jobs.barren;
 import com.murasaki.jobs.geometry.Point;
 import com.murasaki.jobs.geometry.Rectangle;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.Arrays;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class RectangleInputReader {
 
-    private static final String INPUT_REGEX = "\\{(\"([0-9]+ ?){4}\",?)+}";
-    private static final String RECTANGLE_REGEX = "\"([0-9]+ ?){4}\"";
-
     /**
      * Creates a rectangle from formatted string. Format is quote mark, followed by 4 space separated numbers,
      * followed another quote mark. The numbers indicate lower left X, lower left Y, upper right X, upper right Y
@@ -23,19 +18,17 @@ public class RectangleInputReader {
      *
      * @param string formatted string
      * @return rectangle constructed from numbers in the string
-     * @see #INPUT_REGEX
+     * @throws IllegalArgumentException if the string is not correctly formatted
+     * @see RectangleInputParser
      */
     static Rectangle fromString(String string) {
-        if (!string.matches(RECTANGLE_REGEX)) {
-            throw new IllegalArgumentException("expected rectangle to match regex: " + RECTANGLE_REGEX);
+        List<Rectangle> result = new ArrayList<>(1);
+        try {
+            RectangleInputParser.of(string).parseRectangle(collectInto(result));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen when reading from a string
         }
-        string = string.substring(1, string.length() - 1); // remove leading and trailing quote marks
-        List<Integer> parts = Arrays.stream(string.split(" "))
-                .map(Integer::parseInt)
-                .collect(Collectors.toList());
-        Point lowerLeft = new Point(parts.get(0), parts.get(1));
-        Point upperRight = new Point(parts.get(2), parts.get(3));
-        return new Rectangle(lowerLeft, upperRight);
+        return result.get(0);
     }
 
 
@@ -45,28 +38,29 @@ public class RectangleInputReader {
      *
      * @param string formatted string
      * @return rectangles constructed from the formatted string
+     * @throws IllegalArgumentException if the string is not correctly formatted
      * @see #fromString(String)
-     * @see #INPUT_REGEX
+     * @see RectangleInputParser
      */
     static Collection<Rectangle> allFromString(String string) {
-        if (!string.matches(INPUT_REGEX)) {
-            throw new IllegalArgumentException("expected input to match regex: " + INPUT_REGEX);
+        List<Rectangle> result = new ArrayList<>();
+        try {
+            RectangleInputParser.of(string).parse(collectInto(result));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen when reading from a string
         }
-        string = string.substring(1, string.length() - 1); // remove leading and trailing braces
-        return Arrays.stream(string.split(","))
-                .map(RectangleInputReader::fromString)
-                .collect(Collectors.toList());
+        return result;
     }
 
     /**
-     * Reads a single line from standard in and returns it as a string.
-     * @return single line from standard in
-     * @throws IOException
+     * Creates a sink that adds each rectangle it receives to the specified list.
+     *
+     * @param rectangles list to add rectangles to
+     * @return a sink collecting into the list
      */
-    static String readStdin() throws IOException {
-        InputStreamReader inputStreamReader = new InputStreamReader(System.in);
-        BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-        return bufferedReader.readLine();
+    static RectangleSink collectInto(List<Rectangle> rectangles) {
+        return (lowerLeftX, lowerLeftY, upperRightX, upperRightY) ->
+                rectangles.add(new Rectangle(new Point(lowerLeftX, lowerLeftY), new Point(upperRightX, upperRightY)));
     }
 
 }
@@ -0,0 +1,18 @@
+package com.murasaki.jobs.barren;
+
+/**
+ * Receives rectangles as they are read from the input.
+ */
+@FunctionalInterface
+interface RectangleSink {
+
+    /**
+     * Accepts the coordinates of a rectangle.
+     *
+     * @param lowerLeftX  lower left X
+     * @param lowerLeftY  lower left Y
+     * @param upperRightX upper right X
+     * @param upperRightY upper right Y
+     */
+    void accept(int lowerLeftX, int lowerLeftY, int upperRightX, int upperRightY);
+}
@@ -0,0 +1,377 @@
+package com.murasaki.jobs.barren;
+
+import com.murasaki.jobs.geometry.FieldEngine;
+import com.murasaki.jobs.geometry.Rectangle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of answers in front of the field engine, for workloads that keep asking the same question. The order of the
+ * barren rectangles and any duplicates do not change the answer, so the parsed rectangles are sorted and deduplicated
+ * into a canonical key before looking it up. Keys are packed into a {@code long} array, two per rectangle, and hashed
+ * once.
+ * <p>
+ * Answers are kept in memory in a least recently used map of bounded size. Optionally they are also written to a
+ * directory, one file per key named by a 64 bit fingerprint of the key, so that they survive restarts. A file holds
+ * the full key as well as the answer, so two keys with the same fingerprint are never confused.
+ * <p>
+ * A persisted file that cannot be read, or does not hold what it should, counts as a miss: it is deleted and the
+ * problem is solved again. Failing to persist an answer does not fail the problem either, the answer is then only
+ * kept in memory.
+ * <p>
+ * The cache is safe to use from many threads. Two threads missing on the same key at once may both solve it.
+ */
+final class ResultCache implements Solver {
+
+    private static final int FILE_MAGIC = 0x42_4C_43_31; // "BLC1"
+
+    private final Engine engine;
+    private final Rectangle field;
+    private final Path directory;
+    private final Map<Key, String> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates an empty cache of answers for the specified field.
+     *
+     * @param engine    engine used to solve the problems that are not cached
+     * @param field     field that every problem removes rectangles from
+     * @param capacity  largest number of answers kept in memory
+     * @param directory directory that answers are persisted to, or {@code null} to only keep them in memory
+     * @throws IOException if the directory cannot be created
+     */
+    ResultCache(Engine engine, Rectangle field, int capacity, Path directory) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("the cache must hold at least one answer: " + capacity);
+        }
+        this.engine = engine;
+        this.field = field;
+        this.directory = directory;
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        this.entries = new LeastRecentlyUsed<>(capacity);
+    }
+
+    /**
+     * Solves the problem, or gets its answer from the cache.
+     *
+     * @param input formatted input of a list of rectangles to remove
+     * @return sorted list of connected areas left in the field
+     * @throws IllegalArgumentException if the input is not correctly formatted
+     */
+    @Override
+    public String solve(String input) {
+        try {
+            return solve(RectangleInputParser.of(input));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen when reading from a string
+        }
+    }
+
+    /**
+     * Reads a problem from the parser, and solves it or gets its answer from the cache.
+     *
+     * @param parser parser reading a formatted list of rectangles to remove
+     * @return sorted list of connected areas left in the field
+     * @throws IOException if reading the input fails
+     */
+    String solve(RectangleInputParser parser) throws IOException {
+        List<Rectangle> barren = new ArrayList<>();
+        parser.parse(RectangleInputReader.collectInto(barren));
+        Key key = key(barren);
+        String answer;
+        synchronized (entries) {
+            answer = entries.get(key);
+        }
+        if (answer != null) {
+            hits.incrementAndGet();
+            return answer;
+        }
+        answer = read(key);
+        if (answer != null) {
+            diskHits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            FieldEngine barrens = engine.create(field);
+            barrens.removeAll(barren);
+            answer = barrens.sortedAreasAsStrings();
+            write(key, answer);
+        }
+        synchronized (entries) {
+            entries.put(key, answer);
+        }
+        return answer;
+    }
+
+    /**
+     * Builds the canonical key of a problem: the field, followed by the distinct barren rectangles in sorted order.
+     * Each rectangle is packed into two longs, its lower left corner and its upper right corner, which sort the same
+     * way as the coordinates because the input never holds negative numbers.
+     */
+    private Key key(List<Rectangle> barren) {
+        int size = barren.size();
+        long[] lowerLeft = new long[size];
+        long[] upperRight = new long[size];
+        for (int i = 0; i < size; i++) {
+            Rectangle rectangle = barren.get(i);
+            lowerLeft[i] = pack(rectangle.getLowerLeft().getX(), rectangle.getLowerLeft().getY());
+            upperRight[i] = pack(rectangle.getUpperRight().getX(), rectangle.getUpperRight().getY());
+        }
+        sort(lowerLeft, upperRight, new long[size], new long[size], 0, size);
+        long[] values = new long[size * 2 + 2];
+        values[0] = pack(field.getLowerLeft().getX(), field.getLowerLeft().getY());
+        values[1] = pack(field.getUpperRight().getX(), field.getUpperRight().getY());
+        int length = 2;
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && lowerLeft[i] == lowerLeft[i - 1] && upperRight[i] == upperRight[i - 1]) {
+                continue; // duplicate
+            }
+            values[length++] = lowerLeft[i];
+            values[length++] = upperRight[i];
+        }
+        return new Key(Arrays.copyOf(values, length));
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Sorts the pairs {@code (first[i], second[i])} in the range {@code from..to-1} with a merge sort, so the pairs
+     * stay in primitive arrays.
+     */
+    private static void sort(long[] first, long[] second, long[] firstSpare, long[] secondSpare, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(first, second, firstSpare, secondSpare, from, middle);
+        sort(first, second, firstSpare, secondSpare, middle, to);
+        System.arraycopy(first, from, firstSpare, from, to - from);
+        System.arraycopy(second, from, secondSpare, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            boolean takeLeft = right == to || (left < middle && (firstSpare[left] < firstSpare[right]
+                    || (firstSpare[left] == firstSpare[right] && secondSpare[left] <= secondSpare[right])));
+            int source = takeLeft ? left++ : right++;
+            first[i] = firstSpare[source];
+            second[i] = secondSpare[source];
+        }
+    }
+
+    /**
+     * Reads a persisted answer. A file that is truncated, cannot be read, or whose lengths do not add up to its size is
+     * deleted, so that the answer solved in its place can be written.
+     *
+     * @return the answer, or {@code null} if there is no persistent tier, or no answer for the key could be read
+     */
+    private String read(Key key) {
+        if (directory == null) {
+            return null;
+        }
+        Path path = file(key);
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream data = new DataInputStream(new BufferedInputStream(file))) {
+            long size = Files.size(path);
+            if (data.readInt() != FILE_MAGIC) {
+                discard(path);
+                return null;
+            }
+            int length = data.readInt();
+            if (length != key.values.length) {
+                return null; // a different key with the same fingerprint, or a corrupt file, replaced by the new answer
+            }
+            for (long value : key.values) {
+                if (data.readLong() != value) {
+                    return null; // a different key with the same fingerprint
+                }
+            }
+            int answerLength = data.readInt();
+            if (answerLength != size - 12 - 8L * length) {
+                discard(path);
+                return null;
+            }
+            byte[] answer = new byte[answerLength];
+            data.readFully(answer);
+            return new String(answer, StandardCharsets.US_ASCII);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            discard(path);
+            return null;
+        }
+    }
+
+    private static void discard(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // the answer solved in its place replaces it, if it can be written at all
+        }
+    }
+
+    /**
+     * Persists an answer. The file is written under a temporary name and then moved into place, so that a reader never
+     * sees a partly written file. An answer that cannot be written is only kept in memory.
+     */
+    private void write(Key key, String answer) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            writeFile(key, answer);
+        } catch (IOException e) {
+            // the answer is still correct, it just will not survive a restart
+        }
+    }
+
+    private void writeFile(Key key, String answer) throws IOException {
+        Path temporary = Files.createTempFile(directory, "answer", ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temporary);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(file))) {
+                data.writeInt(FILE_MAGIC);
+                data.writeInt(key.values.length);
+                for (long value : key.values) {
+                    data.writeLong(value);
+                }
+                byte[] bytes = answer.getBytes(StandardCharsets.US_ASCII);
+                data.writeInt(bytes.length);
+                data.write(bytes);
+            }
+            try {
+                Files.move(temporary, file(key), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file(key), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private Path file(Key key) {
+        return directory.resolve(String.format("%016x.answer", key.fingerprint()));
+    }
+
+    /**
+     * Gets the number of answers found in memory.
+     *
+     * @return the number of memory hits
+     */
+    long hits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of answers found in the persistent tier after missing in memory.
+     *
+     * @return the number of disk hits
+     */
+    long diskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Gets the number of problems that had to be solved.
+     *
+     * @return the number of misses
+     */
+    long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of answers held in memory.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache hits=" + hits() + " diskHits=" + diskHits() + " misses=" + misses() + " entries=" + size();
+    }
+
+    /**
+     * Map that drops its least recently used entry once it holds more than its capacity.
+     */
+    private static final class LeastRecentlyUsed<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        LeastRecentlyUsed(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Canonical form of a problem, with its hash computed once.
+     */
+    private static final class Key {
+
+        final long[] values;
+        private final int hash;
+
+        Key(long[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        /**
+         * Gets a 64 bit hash of the key that spreads its bits well enough to name files by.
+         */
+        long fingerprint() {
+            long result = 0x9E3779B97F4A7C15L;
+            for (long value : values) {
+                result = (result ^ value) * 0xBF58476D1CE4E5B9L;
+                result ^= result >>> 31;
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(values, ((Key) other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.murasaki.jobs.barren;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Long running server that answers queries over a line protocol on a local TCP socket, so that the cost of starting
+ * and warming up a JVM is only paid once rather than for every query.
+ * <p>
+ * Each line sent by a client is an input in the same format that {@link Main} reads, and is answered with a single line
+ * holding the sorted areas, or with a line starting with {@code error: } if the input could not be read or solved. A
+ * client may send any number of lines over one connection, and they are answered in order. Lines longer than the limit
+ * are answered with an error without being held in memory.
+ * <p>
+ * Every connection is handled on its own virtual thread when the runtime supports them, or on a platform thread
+ * otherwise. Only a bounded number of connections are open at once: once the limit is reached the server stops
+ * accepting, so further clients wait in the backlog of the listening socket until a connection closes. Only a bounded
+ * number of queries are processed at once, a connection waiting for its turn stops reading from its socket, which
+ * pushes back on the client instead of queueing the work.
+ */
+final class Server implements Closeable {
+
+    /**
+     * Longest line answered when no other limit is given, in characters.
+     */
+    static final int DEFAULT_MAX_LINE_LENGTH = 16 * 1024 * 1024;
+
+    private final ServerSocket socket;
+    private final Solver solver;
+    private final Semaphore inFlight;
+    private final Semaphore connectionSlots;
+    private final int maxLineLength;
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final ExecutorService connections = threadPerTaskExecutor();
+
+    /**
+     * Creates a server listening on the loopback address.
+     *
+     * @param port           port to listen on, or {@code 0} for any free port
+     * @param solver         solves every query
+     * @param maxInFlight    largest number of queries processed at once
+     * @param maxConnections largest number of connections open at once
+     * @throws IOException if the socket cannot be opened
+     */
+    Server(int port, Solver solver, int maxInFlight, int maxConnections) throws IOException {
+        this(port, solver, maxInFlight, maxConnections, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * Creates a server listening on the loopback address.
+     *
+     * @param port           port to listen on, or {@code 0} for any free port
+     * @param solver         solves every query
+     * @param maxInFlight    largest number of queries processed at once
+     * @param maxConnections largest number of connections open at once
+     * @param maxLineLength  longest line answered, in characters
+     * @throws IOException if the socket cannot be opened
+     */
+    Server(int port, Solver solver, int maxInFlight, int maxConnections, int maxLineLength) throws IOException {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("at least one query must be allowed in flight: " + maxInFlight);
+        }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("at least one connection must be allowed: " + maxConnections);
+        }
+        if (maxLineLength < 1) {
+            throw new IllegalArgumentException("lines must be allowed at least one character: " + maxLineLength);
+        }
+        this.socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.solver = solver;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.connectionSlots = new Semaphore(maxConnections);
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Gets the port that the server is listening on.
+     *
+     * @return the local port
+     */
+    int port() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is closed, handing each one to its own thread. A connection is only
+     * accepted once there is room for it.
+     *
+     * @throws IOException if accepting a connection fails for a reason other than the server being closed
+     */
+    void serve() throws IOException {
+        while (!socket.isClosed()) {
+            try {
+                connectionSlots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Socket connection;
+            try {
+                connection = socket.accept();
+            } catch (IOException e) {
+                connectionSlots.release();
+                if (e instanceof SocketException && socket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            open.add(connection);
+            if (socket.isClosed()) {
+                // closed between accepting and registering, close() may have missed this connection
+                release(connection);
+                return;
+            }
+            try {
+                connections.execute(() -> handle(connection));
+            } catch (RejectedExecutionException e) {
+                release(connection); // the server was closed in the meantime
+                return;
+            }
+        }
+    }
+
+    /**
+     * Answers every line sent over the connection until the client closes it.
+     */
+    private void handle(Socket connection) {
+        try (Socket client = connection;
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII))) {
+            LineReader reader = new LineReader(client.getInputStream(), maxLineLength);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String response;
+                if (reader.wasTooLong()) {
+                    response = "error: line is longer than " + maxLineLength + " characters";
+                } else {
+                    inFlight.acquire();
+                    try {
+                        response = respond(line);
+                    } catch (RuntimeException e) {
+                        response = Main.error(e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+                writer.write(response);
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // the client went away, there is nobody left to answer
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // the server is shutting down
+        } finally {
+            release(connection);
+        }
+    }
+
+    private void release(Socket connection) {
+        if (open.remove(connection)) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // nothing more can be done with it
+            }
+            connectionSlots.release();
+        }
+    }
+
+    /**
+     * Processes a single line of input.
+     *
+     * @param line formatted input of a list of rectangles to remove
+     * @return sorted list of connected areas left in the field, or a description of why the input could not be read
+     */
+    String respond(String line) {
+        return Main.answer(line, solver);
+    }
+
+    /**
+     * Stops accepting connections and closes every open connection, which also wakes the threads blocked reading them.
+     *
+     * @throws IOException if closing the socket fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            socket.close();
+        } finally {
+            for (Socket connection : open) {
+                release(connection);
+            }
+            connections.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread for each task. The build targets Java 8, so the factory is
+     * looked up reflectively and daemon platform threads are used when virtual threads are not available. Either way
+     * there is at most one thread for every open connection.
+     */
+    private static ExecutorService threadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "barren-land-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Reads ASCII lines ending in {@code \n} or {@code \r\n}, keeping no more of a line than the limit. The rest of a
+     * longer line is read and thrown away, so that the next line can still be answered.
+     */
+    private static final class LineReader {
+
+        private final InputStream input;
+        private final int maxLength;
+        private final byte[] buffer = new byte[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean tooLong;
+
+        LineReader(InputStream input, int maxLength) {
+            this.input = input;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Reads the next line.
+         *
+         * @return the line without its ending, or {@code null} at the end of the input
+         * @throws IOException if reading fails
+         */
+        String readLine() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean any = false;
+            while (true) {
+                if (position == limit) {
+                    limit = input.read(buffer);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return any ? finish() : null;
+                    }
+                }
+                any = true;
+                byte next = buffer[position++];
+                if (next == '\n') {
+                    return finish();
+                }
+                if (line.length() < maxLength + 1) {
+                    line.append((char) (next & 0xFF)); // one more than allowed, so a trailing \r can still be cut
+                } else {
+                    tooLong = true;
+                }
+            }
+        }
+
+        private String finish() {
+            if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            if (line.length() > maxLength) {
+                tooLong = true;
+            }
+            return tooLong ? "" : line.toString();
+        }
+
+        /**
+         * Tells whether the line just read was longer than the limit, in which case it was read as an empty line.
+         *
+         * @return {@code true} if the line was too long
+         */
+        boolean wasTooLong() {
+            return tooLong;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.murasaki.jobs.barren;
+
+/**
+ * Solves a single problem given in the input format, as used wherever many problems are answered by one process.
+ */
+@FunctionalInterface
+interface Solver {
+
+    /**
+     * Solves the problem.
+     *
+     * @param input formatted input of a list of rectangles to remove
+     * @return sorted list of connected areas left in the field
+     * @throws IllegalArgumentException if the input is not correctly formatted
+     */
+    String solve(String input);
+}
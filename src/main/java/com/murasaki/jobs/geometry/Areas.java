@@ -0,0 +1,156 @@
+package com.murasaki.jobs.geometry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Output of the areas of connected patches of green. Areas stay in primitive arrays throughout: they are sorted in
+ * place and their digits are written straight into a byte buffer, so a field with hundreds of thousands of components
+ * neither boxes every area nor builds one large string before anything is written.
+ */
+public final class Areas {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int LONGEST_AREA = 20; // digits of Long.MAX_VALUE, plus the separating space
+
+    private Areas() {
+    }
+
+    /**
+     * Sorts the areas and writes them in ascending order, separated by spaces.
+     *
+     * @param areas  areas to write, they are sorted in place
+     * @param output stream to write to, it is not flushed or closed
+     * @throws IOException if writing fails
+     */
+    public static void writeSorted(long[] areas, OutputStream output) throws IOException {
+        Arrays.sort(areas);
+        write(areas, output);
+    }
+
+    /**
+     * Writes the areas in their current order, separated by spaces.
+     *
+     * @param areas  areas to write
+     * @param output stream to write to, it is not flushed or closed
+     * @throws IOException if writing fails
+     */
+    public static void write(long[] areas, OutputStream output) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length = 0;
+        for (int i = 0; i < areas.length; i++) {
+            if (length > BUFFER_SIZE - LONGEST_AREA) {
+                output.write(buffer, 0, length);
+                length = 0;
+            }
+            if (i > 0) {
+                buffer[length++] = ' ';
+            }
+            length = digits(areas[i], buffer, length);
+        }
+        output.write(buffer, 0, length);
+    }
+
+    /**
+     * Sorts the areas and lists them in ascending order, separated by spaces.
+     *
+     * @param areas areas to list, they are sorted in place
+     * @return the sorted areas as a space separated list
+     */
+    public static String sortedString(long[] areas) {
+        Arrays.sort(areas);
+        StringBuilder result = new StringBuilder(areas.length * 8);
+        for (int i = 0; i < areas.length; i++) {
+            if (i > 0) {
+                result.append(' ');
+            }
+            result.append(areas[i]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes the decimal digits of a non-negative area.
+     *
+     * @return the position after the digits
+     */
+    private static int digits(long area, byte[] buffer, int position) {
+        if (area < 0) {
+            throw new IllegalArgumentException("negative area: " + area);
+        }
+        int end = position + (area == 0 ? 1 : 0);
+        for (long rest = area; rest > 0; rest /= 10) {
+            end++;
+        }
+        int digit = end;
+        do {
+            buffer[--digit] = (byte) ('0' + area % 10);
+            area /= 10;
+        } while (area > 0);
+        return end;
+    }
+
+    /**
+     * Finds the largest areas without sorting all of them. The candidates are kept in a min-heap of at most the
+     * requested size, so only an area larger than the smallest candidate so far does any work, and the cost is
+     * proportional to the number of areas times the logarithm of the requested count.
+     *
+     * @param areas areas to choose from, they are not changed
+     * @param count largest number of areas to return
+     * @return the largest areas in ascending order, all of them if there are no more than the count
+     */
+    public static long[] largest(long[] areas, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("cannot keep a negative number of areas: " + count);
+        }
+        int size = Math.min(count, areas.length);
+        long[] heap = new long[size];
+        if (size == 0) {
+            return heap;
+        }
+        System.arraycopy(areas, 0, heap, 0, size);
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(heap, i, size);
+        }
+        for (int i = size; i < areas.length; i++) {
+            if (areas[i] > heap[0]) {
+                heap[0] = areas[i];
+                siftDown(heap, 0, size);
+            }
+        }
+        // take the smallest off the heap one at a time, leaving each at the end of the shrinking heap
+        for (int end = size - 1; end > 0; end--) {
+            long smallest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = smallest;
+            siftDown(heap, 0, end);
+        }
+        // that leaves them in descending order
+        for (int low = 0, high = size - 1; low < high; low++, high--) {
+            long swap = heap[low];
+            heap[low] = heap[high];
+            heap[high] = swap;
+        }
+        return heap;
+    }
+
+    private static void siftDown(long[] heap, int index, int size) {
+        long value = heap[index];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
@@ -0,0 +1,248 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Connected components of a set of disjoint rectangles. Two rectangles are connected when they share some part of an
+ * edge. Touching pairs are found by sorting the rectangles by their edge coordinates and sweeping over each shared
+ * coordinate, and connected rectangles are merged in a union-find over the rectangle indices.
+ */
+final class Components {
+
+    private final int[] parent;
+    private final int[] left;
+    private final int[] bottom;
+    private final int[] right;
+    private final int[] top;
+    private final int size;
+    private long comparisons;
+
+    /**
+     * Finds the connected components of the rectangles whose coordinates are held in the specified arrays. The
+     * rectangle at index {@code i} spans {@code left[i]..right[i]} horizontally and {@code bottom[i]..top[i]}
+     * vertically. The rectangles must not overlap each other.
+     *
+     * @param left   left x coordinate of each rectangle
+     * @param bottom bottom y coordinate of each rectangle
+     * @param right  right x coordinate of each rectangle
+     * @param top    top y coordinate of each rectangle
+     * @param size   number of rectangles held in the arrays
+     */
+    Components(int[] left, int[] bottom, int[] right, int[] top, int size) {
+        this.left = left;
+        this.bottom = bottom;
+        this.right = right;
+        this.top = top;
+        this.size = size;
+        this.parent = new int[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        connect(right, left, bottom, top); // left and right neighbours
+        connect(top, bottom, left, right); // upper and lower neighbours
+    }
+
+    /**
+     * Finds the connected components of the specified rectangles. Indices used by this object are the positions in
+     * the list.
+     *
+     * @param rectangles disjoint rectangles to find the components of
+     * @return the connected components of the rectangles
+     */
+    static Components of(List<Rectangle> rectangles) {
+        int size = rectangles.size();
+        int[] left = new int[size];
+        int[] bottom = new int[size];
+        int[] right = new int[size];
+        int[] top = new int[size];
+        for (int i = 0; i < size; i++) {
+            Rectangle rectangle = rectangles.get(i);
+            left[i] = rectangle.getLowerLeft().getX();
+            bottom[i] = rectangle.getLowerLeft().getY();
+            right[i] = rectangle.getUpperRight().getX();
+            top[i] = rectangle.getUpperRight().getY();
+        }
+        return new Components(left, bottom, right, top, size);
+    }
+
+    /**
+     * Finds the connected components of the fragments held in the specified store. Indices used by this object count
+     * the live fragments in slot order.
+     *
+     * @param fragments disjoint fragments to find the components of
+     * @return the connected components of the fragments
+     */
+    static Components of(FragmentStore fragments) {
+        int size = fragments.size();
+        int[] left = new int[size];
+        int[] bottom = new int[size];
+        int[] right = new int[size];
+        int[] top = new int[size];
+        int i = 0;
+        for (int slot = 0; slot < fragments.end(); slot++) {
+            if (fragments.isLive(slot)) {
+                left[i] = fragments.left(slot);
+                bottom[i] = fragments.bottom(slot);
+                right[i] = fragments.right(slot);
+                top[i] = fragments.top(slot);
+                i++;
+            }
+        }
+        return new Components(left, bottom, right, top, size);
+    }
+
+    /**
+     * Unions every pair of rectangles where the far edge of one is directly next to the near edge of the other and the
+     * two edges overlap. Both sides are sorted by edge coordinate and then by position along the edge, so a single
+     * merge-style sweep visits every touching pair.
+     *
+     * @param farEdge  coordinate of the edge facing the neighbour (right or top)
+     * @param nearEdge coordinate of the opposing edge on the neighbour (left or bottom)
+     * @param low      lowest coordinate along the edge (bottom or left)
+     * @param high     highest coordinate along the edge (top or right)
+     */
+    private void connect(int[] farEdge, int[] nearEdge, int[] low, int[] high) {
+        long[] far = sortByEdge(farEdge, low);
+        long[] near = sortByEdge(nearEdge, low);
+        int i = 0;
+        int j = 0;
+        long compared = 0;
+        while (i < size && j < size) {
+            compared++;
+            int a = index(far[i]);
+            int b = index(near[j]);
+            long farKey = (long) farEdge[a] + 1;
+            long nearKey = nearEdge[b];
+            if (farKey < nearKey) {
+                i++;
+            } else if (farKey > nearKey) {
+                j++;
+            } else if (high[a] < low[b]) {
+                i++;
+            } else if (high[b] < low[a]) {
+                j++;
+            } else {
+                union(a, b);
+                // keep whichever edge reaches further, it may still touch the next one on the other side
+                if (high[a] < high[b]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+        }
+        comparisons += compared;
+    }
+
+    /**
+     * Gets the rectangle indices sorted by edge coordinate and then by lowest coordinate along that edge. Each entry
+     * packs the sort key into the upper half of a {@code long} and the index into the lower half so that the sort can
+     * run on primitives.
+     *
+     * @param edge edge coordinate to sort by
+     * @param low  coordinate along the edge to sort by within the same edge coordinate
+     * @return packed entries in sorted order
+     * @see #index(long)
+     */
+    private long[] sortByEdge(int[] edge, int[] low) {
+        long[] entries = new long[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = pack(edge[i], i);
+        }
+        Arrays.sort(entries);
+        // within each run of the same edge coordinate, re-sort by position along the edge
+        int start = 0;
+        while (start < size) {
+            int key = edge[index(entries[start])];
+            int end = start + 1;
+            while (end < size && edge[index(entries[end])] == key) {
+                end++;
+            }
+            if (end - start > 1) {
+                for (int k = start; k < end; k++) {
+                    int index = index(entries[k]);
+                    entries[k] = pack(low[index], index);
+                }
+                Arrays.sort(entries, start, end);
+            }
+            start = end;
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the number of edge comparisons made while finding the touching rectangles.
+     *
+     * @return the number of comparisons
+     */
+    long comparisons() {
+        return comparisons;
+    }
+
+    private static long pack(int key, int index) {
+        return ((long) key << 32) | index;
+    }
+
+    private static int index(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Gets the representative of the component containing the rectangle at the specified index.
+     *
+     * @param index index of a rectangle
+     * @return index of the rectangle representing its component
+     */
+    int find(int index) {
+        while (parent[index] != index) {
+            parent[index] = parent[parent[index]]; // path halving
+            index = parent[index];
+        }
+        return index;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    /**
+     * Gets a dense label for every rectangle such that rectangles in the same component share a label. Labels are
+     * numbered from zero in order of the first rectangle of each component.
+     *
+     * @return component label of each rectangle, indexed like the rectangles
+     */
+    int[] labels() {
+        int[] labels = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int root = find(i);
+            // roots are always the lowest index in their component, so they are labelled before their members
+            labels[i] = root == i ? count++ : labels[root];
+        }
+        return labels;
+    }
+
+    /**
+     * Gets the total area of each component.
+     *
+     * @return the area of each component, indexed by component label
+     * @see #labels()
+     */
+    long[] areas() {
+        int[] labels = labels();
+        int count = 0;
+        for (int label : labels) {
+            count = Math.max(count, label + 1);
+        }
+        long[] areas = new long[count];
+        for (int i = 0; i < size; i++) {
+            areas[labels[i]] += ((long) right[i] - left[i] + 1) * ((long) top[i] - bottom[i] + 1);
+        }
+        return areas;
+    }
+}
@@ -0,0 +1,186 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Field engine for fields whose coordinates are far too large for a bitmap. The distinct x and y boundaries of the
+ * field and of the barren rectangles cut the field into a grid of cells, where every cell is either entirely barren or
+ * entirely green. That grid only depends on the number of barren rectangles, not on the size of the field, so the
+ * components are found by flood filling it and each cell counts with its real width and height. Areas are summed as
+ * {@code long} so that they do not overflow on large fields.
+ * <p>
+ * Removed rectangles are collected and only painted into the grid when the areas are requested.
+ */
+public class CompressedField implements FieldEngine {
+
+    private final int left;
+    private final int bottom;
+    private final int right;
+    private final int top;
+    private int[] barren = new int[64];
+    private int count;
+
+    /**
+     * Creates a new field where everything inside the specified rectangle is green.
+     *
+     * @param green starting green rectangle
+     */
+    public CompressedField(Rectangle green) {
+        this.left = green.getLowerLeft().getX();
+        this.bottom = green.getLowerLeft().getY();
+        this.right = green.getUpperRight().getX();
+        this.top = green.getUpperRight().getY();
+    }
+
+    /**
+     * Removes the specified rectangle from the field. Only the part within the field is kept, and it is painted when
+     * the areas are next requested.
+     * @param rectangle rectangle to remove from the field
+     */
+    @Override
+    public void remove(Rectangle rectangle) {
+        if (rectangle == null) {
+            return;
+        }
+        int x1 = Math.max(rectangle.getLowerLeft().getX(), left);
+        int y1 = Math.max(rectangle.getLowerLeft().getY(), bottom);
+        int x2 = Math.min(rectangle.getUpperRight().getX(), right);
+        int y2 = Math.min(rectangle.getUpperRight().getY(), top);
+        if (x1 > x2 || y1 > y2) {
+            return;
+        }
+        if (count * 4 == barren.length) {
+            barren = Arrays.copyOf(barren, barren.length * 2);
+        }
+        barren[count * 4] = x1;
+        barren[count * 4 + 1] = y1;
+        barren[count * 4 + 2] = x2;
+        barren[count * 4 + 3] = y2;
+        count++;
+    }
+
+    /**
+     * Gets the area of every connected patch of green, in no particular order.
+     *
+     * @return the area of each connected patch of green
+     * @throws IllegalArgumentException if the barren rectangles cut the field into too many cells to hold
+     */
+    @Override
+    public long[] areas() {
+        long[] xs = boundaries(left, right, 0);
+        long[] ys = boundaries(bottom, top, 1);
+        int columns = xs.length - 1;
+        int rows = ys.length - 1;
+        if ((long) (columns + 1) * (rows + 1) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many distinct coordinates to compress: " + columns + "x" + rows);
+        }
+
+        // paint the barren rectangles as +1 and -1 at their corners, then a running sum over both axes gives the number
+        // of rectangles covering each cell
+        int stride = columns + 1;
+        int[] covered = new int[stride * (rows + 1)];
+        for (int i = 0; i < count; i++) {
+            int x1 = Arrays.binarySearch(xs, barren[i * 4]);
+            int y1 = Arrays.binarySearch(ys, barren[i * 4 + 1]);
+            int x2 = Arrays.binarySearch(xs, (long) barren[i * 4 + 2] + 1);
+            int y2 = Arrays.binarySearch(ys, (long) barren[i * 4 + 3] + 1);
+            covered[y1 * stride + x1]++;
+            covered[y1 * stride + x2]--;
+            covered[y2 * stride + x1]--;
+            covered[y2 * stride + x2]++;
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * stride + column;
+                if (row > 0) {
+                    covered[cell] += covered[cell - stride];
+                }
+                if (column > 0) {
+                    covered[cell] += covered[cell - 1];
+                }
+                if (row > 0 && column > 0) {
+                    covered[cell] -= covered[cell - stride - 1];
+                }
+            }
+        }
+        // barren cells and the extra column at the end of each row start out visited, so the fill never enters them
+        boolean[] visited = new boolean[stride * rows];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column <= columns; column++) {
+                visited[row * stride + column] = column == columns || covered[row * stride + column] > 0;
+            }
+        }
+
+        long[] areas = new long[16];
+        int areaCount = 0;
+        int[] stack = new int[64];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * stride + column;
+                if (visited[cell]) {
+                    continue;
+                }
+                if (areaCount == areas.length) {
+                    areas = Arrays.copyOf(areas, areaCount * 2);
+                }
+                long area = 0;
+                int size = 0;
+                visited[cell] = true;
+                stack[size++] = cell;
+                while (size > 0) {
+                    int next = stack[--size];
+                    int nextRow = next / stride;
+                    int nextColumn = next % stride;
+                    area += (xs[nextColumn + 1] - xs[nextColumn]) * (ys[nextRow + 1] - ys[nextRow]);
+                    if (stack.length - size < 4) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    if (nextColumn > 0 && !visited[next - 1]) {
+                        visited[next - 1] = true;
+                        stack[size++] = next - 1;
+                    }
+                    if (!visited[next + 1]) {
+                        visited[next + 1] = true;
+                        stack[size++] = next + 1;
+                    }
+                    if (nextRow > 0 && !visited[next - stride]) {
+                        visited[next - stride] = true;
+                        stack[size++] = next - stride;
+                    }
+                    if (nextRow + 1 < rows && !visited[next + stride]) {
+                        visited[next + stride] = true;
+                        stack[size++] = next + stride;
+                    }
+                }
+                areas[areaCount++] = area;
+            }
+        }
+        return Arrays.copyOf(areas, areaCount);
+    }
+
+    /**
+     * Gets the sorted distinct boundaries along one axis. A boundary is the first coordinate of a cell, and the last
+     * boundary is one past the end of the field, so they are held as longs in case the field ends at the largest int.
+     *
+     * @param low    first coordinate of the field along the axis
+     * @param high   last coordinate of the field along the axis
+     * @param offset {@code 0} for the x axis, {@code 1} for the y axis
+     */
+    private long[] boundaries(int low, int high, int offset) {
+        long[] boundaries = new long[count * 2 + 2];
+        boundaries[0] = low;
+        boundaries[1] = (long) high + 1;
+        for (int i = 0; i < count; i++) {
+            boundaries[i * 2 + 2] = barren[i * 4 + offset];
+            boundaries[i * 2 + 3] = (long) barren[i * 4 + 2 + offset] + 1;
+        }
+        Arrays.sort(boundaries);
+        int unique = 1;
+        for (int i = 1; i < boundaries.length; i++) {
+            if (boundaries[i] != boundaries[unique - 1]) {
+                boundaries[unique++] = boundaries[i];
+            }
+        }
+        return Arrays.copyOf(boundaries, unique);
+    }
+}
@@ -0,0 +1,133 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Field engine that many threads can remove barren rectangles from at once. The field is split into vertical stripes,
+ * each its own {@link RectangleField} guarded by its own lock, and a removal only locks the stripes it overlaps, so
+ * removals in different parts of the field go ahead in parallel.
+ * <p>
+ * A removal holds the locks of all the stripes it overlaps until it is done with every one of them, and the locks are
+ * always taken from left to right, so removals cannot deadlock. Reading the areas takes every lock in the same order
+ * just long enough to copy the fragments of each stripe, which means the areas always reflect a set of whole
+ * removals, never part of one. The components of the copies are then found, and stitched across the stripe borders as
+ * {@link TiledField} does, without holding any lock.
+ */
+public class ConcurrentField implements FieldEngine {
+
+    private static final int STRIPES_PER_PROCESSOR = 4;
+
+    private final Rectangle bounds;
+    private final int[] starts;
+    private final Stripe[] stripes;
+
+    /**
+     * Creates a new field where everything inside the specified rectangle is green, with a few stripes for every
+     * processor.
+     *
+     * @param green starting green rectangle
+     */
+    public ConcurrentField(Rectangle green) {
+        this(green, Runtime.getRuntime().availableProcessors() * STRIPES_PER_PROCESSOR);
+    }
+
+    /**
+     * Creates a new field where everything inside the specified rectangle is green.
+     *
+     * @param green       starting green rectangle
+     * @param stripeCount number of stripes the field is split into, fewer are used if the field is too narrow
+     */
+    public ConcurrentField(Rectangle green, int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("at least one stripe is needed: " + stripeCount);
+        }
+        this.bounds = green;
+        this.starts = TiledField.split(green.getLowerLeft().getX(), green.getUpperRight().getX(), stripeCount);
+        this.stripes = new Stripe[starts.length - 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(new Rectangle(new Point(starts[i], green.getLowerLeft().getY()),
+                    new Point(starts[i + 1] - 1, green.getUpperRight().getY())));
+        }
+    }
+
+    /**
+     * Removes the specified rectangle from the field. Safe to call from many threads at once.
+     * @param rectangle rectangle to remove from the field
+     */
+    @Override
+    public void remove(Rectangle rectangle) {
+        if (rectangle == null || !bounds.intersects(rectangle)) {
+            return;
+        }
+        int first = stripeOf(rectangle.getLowerLeft().getX());
+        int last = stripeOf(rectangle.getUpperRight().getX());
+        for (int i = first; i <= last; i++) {
+            stripes[i].lock.lock();
+        }
+        try {
+            for (int i = first; i <= last; i++) {
+                stripes[i].field.remove(rectangle);
+            }
+        } finally {
+            for (int i = last; i >= first; i--) {
+                stripes[i].lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the stripe holding the specified column, or the nearest stripe if the column is outside the field.
+     */
+    private int stripeOf(int x) {
+        int found = Arrays.binarySearch(starts, 0, stripes.length, x);
+        int stripe = found >= 0 ? found : -found - 2;
+        return Math.max(0, Math.min(stripes.length - 1, stripe));
+    }
+
+    /**
+     * Gets the area of every connected patch of green, in no particular order. Safe to call while other threads are
+     * removing rectangles; the areas include every removal that finished before the call and none that started after
+     * it, and any removal in between is either included whole or not at all.
+     *
+     * @return the area of each connected patch of green
+     */
+    @Override
+    public long[] areas() {
+        FragmentStore[] snapshot = new FragmentStore[stripes.length];
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            for (int i = 0; i < stripes.length; i++) {
+                snapshot[i] = stripes[i].field.rectangles.copy();
+            }
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].lock.unlock();
+            }
+        }
+        List<TileComponents> components = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            components.add(TileComponents.of(snapshot[i], stripes[i].bounds, bounds));
+        }
+        return TileComponents.stitch(components);
+    }
+
+    /**
+     * One stripe of the field and the lock guarding it.
+     */
+    private static final class Stripe {
+
+        final Rectangle bounds;
+        final RectangleField field;
+        final ReentrantLock lock = new ReentrantLock();
+
+        Stripe(Rectangle bounds) {
+            this.bounds = bounds;
+            this.field = new RectangleField(bounds);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.murasaki.jobs.geometry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A field of green that barren rectangles are removed from, which can then report the areas of the green patches
+ * that remain. Implementations differ in how they represent the field, but all of them report the same areas.
+ */
+public interface FieldEngine {
+
+    /**
+     * Removes the specified rectangle from the field.
+     * @param rectangle rectangle to remove from the field
+     */
+    void remove(Rectangle rectangle);
+
+    /**
+     * Remove all rectangles in the specified collection from the field
+     * @param rectangles rectangles to be removed
+     * @see #remove(Rectangle)
+     */
+    default void removeAll(Iterable<Rectangle> rectangles) {
+        for (Rectangle rectangle : rectangles) {
+            remove(rectangle);
+        }
+    }
+
+    /**
+     * Gets the area of every connected patch of green, in no particular order.
+     * @return the area of each connected patch of green
+     */
+    long[] areas();
+
+    /**
+     * Calculates the area of all connected patches of green and returns them as a space separated sorted list.
+     * @return the area of all connected patches of green as a space separated sorted list
+     */
+    default String sortedAreasAsStrings() {
+        return Areas.sortedString(areas());
+    }
+
+    /**
+     * Calculates the area of all connected patches of green and writes them to the stream as a space separated sorted
+     * list, without building the whole list in memory first.
+     * @param output stream to write to, it is not flushed or closed
+     * @throws IOException if writing fails
+     * @see Areas#writeSorted(long[], java.io.OutputStream)
+     */
+    default void writeSortedAreas(OutputStream output) throws IOException {
+        Areas.writeSorted(areas(), output);
+    }
+
+    /**
+     * Calculates the area of the largest connected patches of green, without sorting all of them.
+     * @param count largest number of areas to return
+     * @return the largest areas in ascending order
+     * @see Areas#largest(long[], int)
+     */
+    default long[] largestAreas(int count) {
+        return Areas.largest(areas(), count);
+    }
+}
@@ -0,0 +1,227 @@
+package com.murasaki.jobs.geometry;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Counters describing the work done by a {@link RectangleField}: how many fragments its removals create and destroy,
+ * how many fragments it holds at most, how many candidate fragments are tested for intersection, how many edge
+ * comparisons finding the components takes, and the time spent in each phase.
+ * <p>
+ * Metrics are only collected when the {@code barren.metrics} system property is {@code true} at startup. A field
+ * created while it is off records nothing, and its instrumentation costs no more than a check of a final flag. Every
+ * field keeps its own counters for its run, and everything recorded is also added to the
+ * {@linkplain #cumulative() cumulative} counters, which can be published as a JMX MBean. Fields may be used on
+ * different threads, so the counters are adders rather than plain longs.
+ */
+public final class FieldMetrics implements FieldMetricsMXBean {
+
+    /**
+     * Whether metrics are collected.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("barren.metrics");
+
+    /**
+     * Name that the cumulative counters are registered under.
+     */
+    public static final String OBJECT_NAME = "com.murasaki.jobs.geometry:type=FieldMetrics";
+
+    /**
+     * Counters of a field created while metrics are disabled, they are never recorded to.
+     */
+    static final FieldMetrics DISABLED = new FieldMetrics(null);
+
+    private static final FieldMetrics CUMULATIVE = new FieldMetrics(null);
+
+    private final FieldMetrics total;
+    private final LongAdder removals = new LongAdder();
+    private final LongAdder fragmentsCreated = new LongAdder();
+    private final LongAdder fragmentsDestroyed = new LongAdder();
+    private final LongAdder fragmentsCoalesced = new LongAdder();
+    private final LongAccumulator peakFragments = new LongAccumulator(new Maximum(), 0);
+    private final LongAdder intersectionTests = new LongAdder();
+    private final LongAdder adjacencyComparisons = new LongAdder();
+    private final LongAdder removeNanos = new LongAdder();
+    private final LongAdder coalesceNanos = new LongAdder();
+    private final LongAdder labelNanos = new LongAdder();
+
+    /**
+     * Creates counters for a single run that also add to the cumulative counters.
+     */
+    FieldMetrics() {
+        this(CUMULATIVE);
+    }
+
+    private FieldMetrics(FieldMetrics total) {
+        this.total = total;
+    }
+
+    /**
+     * Gets the counters for everything recorded by every field since startup or the last reset.
+     *
+     * @return the cumulative counters
+     */
+    public static FieldMetrics cumulative() {
+        return CUMULATIVE;
+    }
+
+    /**
+     * Registers the cumulative counters with the platform MBean server under {@link #OBJECT_NAME}. Registering them
+     * again does nothing.
+     *
+     * @throws IllegalStateException if the MBean cannot be registered
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(CUMULATIVE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // already registered
+        } catch (JMException e) {
+            throw new IllegalStateException("could not register the field metrics", e);
+        }
+    }
+
+    /**
+     * Records a single removal.
+     *
+     * @param created   number of fragments added for the pieces that remained
+     * @param destroyed number of fragments that intersected the removed rectangle
+     * @param fragments number of fragments held afterwards
+     * @param tests     number of candidate fragments tested for intersection
+     * @param nanos     time taken
+     */
+    void removed(int created, int destroyed, int fragments, int tests, long nanos) {
+        removals.increment();
+        fragmentsCreated.add(created);
+        fragmentsDestroyed.add(destroyed);
+        peakFragments.accumulate(fragments);
+        intersectionTests.add(tests);
+        removeNanos.add(nanos);
+        if (total != null) {
+            total.removed(created, destroyed, fragments, tests, nanos);
+        }
+    }
+
+    /**
+     * Records a pass coalescing the fragments.
+     *
+     * @param merged number of fragments merged into their neighbours
+     * @param nanos  time taken
+     */
+    void coalesced(int merged, long nanos) {
+        fragmentsCoalesced.add(merged);
+        coalesceNanos.add(nanos);
+        if (total != null) {
+            total.coalesced(merged, nanos);
+        }
+    }
+
+    /**
+     * Records finding the connected components of the fragments.
+     *
+     * @param comparisons number of edge comparisons made
+     * @param nanos       time taken
+     */
+    void labelled(long comparisons, long nanos) {
+        adjacencyComparisons.add(comparisons);
+        labelNanos.add(nanos);
+        if (total != null) {
+            total.labelled(comparisons, nanos);
+        }
+    }
+
+    @Override
+    public long getRemovals() {
+        return removals.sum();
+    }
+
+    @Override
+    public long getFragmentsCreated() {
+        return fragmentsCreated.sum();
+    }
+
+    @Override
+    public long getFragmentsDestroyed() {
+        return fragmentsDestroyed.sum();
+    }
+
+    @Override
+    public long getFragmentsCoalesced() {
+        return fragmentsCoalesced.sum();
+    }
+
+    @Override
+    public long getPeakFragments() {
+        return peakFragments.get();
+    }
+
+    @Override
+    public long getIntersectionTests() {
+        return intersectionTests.sum();
+    }
+
+    @Override
+    public long getAdjacencyComparisons() {
+        return adjacencyComparisons.sum();
+    }
+
+    @Override
+    public long getRemoveNanos() {
+        return removeNanos.sum();
+    }
+
+    @Override
+    public long getCoalesceNanos() {
+        return coalesceNanos.sum();
+    }
+
+    @Override
+    public long getLabelNanos() {
+        return labelNanos.sum();
+    }
+
+    @Override
+    public void reset() {
+        removals.reset();
+        fragmentsCreated.reset();
+        fragmentsDestroyed.reset();
+        fragmentsCoalesced.reset();
+        peakFragments.reset();
+        intersectionTests.reset();
+        adjacencyComparisons.reset();
+        removeNanos.reset();
+        coalesceNanos.reset();
+        labelNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "removals=" + getRemovals()
+                + " fragmentsCreated=" + getFragmentsCreated()
+                + " fragmentsDestroyed=" + getFragmentsDestroyed()
+                + " fragmentsCoalesced=" + getFragmentsCoalesced()
+                + " peakFragments=" + getPeakFragments()
+                + " intersectionTests=" + getIntersectionTests()
+                + " adjacencyComparisons=" + getAdjacencyComparisons()
+                + " removeNanos=" + getRemoveNanos()
+                + " coalesceNanos=" + getCoalesceNanos()
+                + " labelNanos=" + getLabelNanos();
+    }
+
+    /**
+     * Keeps the larger value. A class rather than a method reference, because every field loads these counters and a
+     * method reference would bootstrap the lambda machinery on startup even when metrics are disabled.
+     */
+    private static final class Maximum implements LongBinaryOperator {
+
+        @Override
+        public long applyAsLong(long left, long right) {
+            return Math.max(left, right);
+        }
+    }
+}
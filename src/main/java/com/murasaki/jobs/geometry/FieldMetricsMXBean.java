@@ -0,0 +1,32 @@
+package com.murasaki.jobs.geometry;
+
+/**
+ * Management interface of {@link FieldMetrics}, exposing the counters as read-only JMX attributes.
+ */
+public interface FieldMetricsMXBean {
+
+    long getRemovals();
+
+    long getFragmentsCreated();
+
+    long getFragmentsDestroyed();
+
+    long getFragmentsCoalesced();
+
+    long getPeakFragments();
+
+    long getIntersectionTests();
+
+    long getAdjacencyComparisons();
+
+    long getRemoveNanos();
+
+    long getCoalesceNanos();
+
+    long getLabelNanos();
+
+    /**
+     * Sets every counter back to zero.
+     */
+    void reset();
+}
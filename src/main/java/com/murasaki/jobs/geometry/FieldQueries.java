@@ -0,0 +1,204 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Index over the green of a field, built once so that many region and point queries can be answered without looking
+ * at the fragments again. The distinct x and y boundaries of the fragments cut the field into a grid of cells that are
+ * each entirely green or entirely barren, as in {@link CompressedField}. Every cell holds the label of the component it
+ * belongs to, and a summed-area table over the cells holds the green area below and to the left of every cell corner.
+ * <p>
+ * A point query finds its cell with a binary search along each axis and reads the label, and a region query reads the
+ * table at the four corners of the region. Either costs a logarithm of the number of fragments, however large the
+ * field or the region. The index is a snapshot: removals from the field after it was built do not change it.
+ */
+public final class FieldQueries {
+
+    private final long[] xs;
+    private final long[] ys;
+    private final int columns;
+    private final int rows;
+    private final int[] labels;
+    private final long[] sums;
+    private final long[] areas;
+
+    /**
+     * Builds the index over the specified fragments.
+     *
+     * @param fragments  disjoint fragments of the green of a field
+     * @param components connected components of the fragments
+     * @throws IllegalArgumentException if the fragments cut the field into too many cells to hold
+     */
+    FieldQueries(FragmentStore fragments, Components components) {
+        this.xs = boundaries(fragments, true);
+        this.ys = boundaries(fragments, false);
+        this.columns = Math.max(0, xs.length - 1);
+        this.rows = Math.max(0, ys.length - 1);
+        if ((long) (columns + 1) * (rows + 1) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many distinct coordinates to index: " + columns + "x" + rows);
+        }
+        this.areas = components.areas();
+
+        int[] fragmentLabels = components.labels();
+        this.labels = new int[columns * rows];
+        Arrays.fill(labels, -1);
+        int index = 0;
+        for (int slot = 0; slot < fragments.end(); slot++) {
+            if (!fragments.isLive(slot)) {
+                continue;
+            }
+            int x1 = Arrays.binarySearch(xs, fragments.left(slot));
+            int y1 = Arrays.binarySearch(ys, fragments.bottom(slot));
+            int x2 = Arrays.binarySearch(xs, (long) fragments.right(slot) + 1);
+            int y2 = Arrays.binarySearch(ys, (long) fragments.top(slot) + 1);
+            for (int row = y1; row < y2; row++) {
+                Arrays.fill(labels, row * columns + x1, row * columns + x2, fragmentLabels[index]);
+            }
+            index++;
+        }
+
+        // sums[row * stride + column] is the green area of the cells left of the column and below the row
+        int stride = columns + 1;
+        this.sums = new long[stride * (rows + 1)];
+        for (int row = 0; row < rows; row++) {
+            long height = ys[row + 1] - ys[row];
+            for (int column = 0; column < columns; column++) {
+                long green = labels[row * columns + column] < 0 ? 0 : (xs[column + 1] - xs[column]) * height;
+                int corner = (row + 1) * stride + column + 1;
+                sums[corner] = sums[corner - 1] + sums[corner - stride] - sums[corner - stride - 1] + green;
+            }
+        }
+    }
+
+    /**
+     * Gets the sorted distinct boundaries of the fragments along one axis. A boundary is the first coordinate of a
+     * cell, and the last boundary is one past the end of the last cell, so they are held as longs.
+     *
+     * @param horizontal {@code true} for the x axis, {@code false} for the y axis
+     */
+    private static long[] boundaries(FragmentStore fragments, boolean horizontal) {
+        long[] boundaries = new long[fragments.size() * 2];
+        int i = 0;
+        for (int slot = 0; slot < fragments.end(); slot++) {
+            if (fragments.isLive(slot)) {
+                boundaries[i++] = horizontal ? fragments.left(slot) : fragments.bottom(slot);
+                boundaries[i++] = (long) (horizontal ? fragments.right(slot) : fragments.top(slot)) + 1;
+            }
+        }
+        Arrays.sort(boundaries);
+        int unique = 0;
+        for (long boundary : boundaries) {
+            if (unique == 0 || boundary != boundaries[unique - 1]) {
+                boundaries[unique++] = boundary;
+            }
+        }
+        return Arrays.copyOf(boundaries, unique);
+    }
+
+    /**
+     * Gets the green area inside the specified rectangle. Parts of the rectangle outside the field count as barren.
+     *
+     * @param region rectangle to measure the green inside of
+     * @return the number of green squares inside the rectangle
+     */
+    public long greenArea(Rectangle region) {
+        if (columns == 0) {
+            return 0;
+        }
+        // clamp to the field, so that every coordinate lies within or at the far end of a cell
+        long x1 = clamp(xs, region.getLowerLeft().getX());
+        long y1 = clamp(ys, region.getLowerLeft().getY());
+        long x2 = clamp(xs, (long) region.getUpperRight().getX() + 1);
+        long y2 = clamp(ys, (long) region.getUpperRight().getY() + 1);
+        int left = cell(xs, columns, x1);
+        int bottom = cell(ys, rows, y1);
+        int right = cell(xs, columns, x2);
+        int top = cell(ys, rows, y2);
+        return greenBefore(right, x2, top, y2) - greenBefore(left, x1, top, y2)
+                - greenBefore(right, x2, bottom, y1) + greenBefore(left, x1, bottom, y1);
+    }
+
+    private static long clamp(long[] boundaries, long coordinate) {
+        return Math.max(boundaries[0], Math.min(boundaries[boundaries.length - 1], coordinate));
+    }
+
+    /**
+     * Gets the green area left of the specified x coordinate and below the specified y coordinate, given the cell that
+     * the coordinates fall in. Within a single cell that area grows linearly along each axis, so it is interpolated
+     * exactly from the sums at the corners of the cell.
+     */
+    private long greenBefore(int column, long x, int row, long y) {
+        long dx = x - xs[column];
+        long dy = y - ys[row];
+        int stride = columns + 1;
+        int corner = row * stride + column;
+        long lowerLeft = sums[corner];
+        long lowerRight = sums[corner + 1];
+        long upperLeft = sums[corner + stride];
+        // each difference is a whole number of columns or rows of the cell, so the divisions are exact
+        long perColumn = (lowerRight - lowerLeft) / (xs[column + 1] - xs[column]);
+        long perRow = (upperLeft - lowerLeft) / (ys[row + 1] - ys[row]);
+        long inside = labels[row * columns + column] < 0 ? 0 : dx * dy;
+        return lowerLeft + dx * perColumn + dy * perRow + inside;
+    }
+
+    /**
+     * Gets the cell along one axis whose first coordinate is the last one not after the specified coordinate, keeping
+     * within the cells that exist.
+     */
+    private static int cell(long[] boundaries, int cells, long coordinate) {
+        int found = Arrays.binarySearch(boundaries, coordinate);
+        int cell = found >= 0 ? found : -found - 2;
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    /**
+     * Gets the component containing the specified point.
+     *
+     * @param point point to look up
+     * @return the label of the component, from {@code 0} up to the {@link #componentCount()}, or {@code -1} if the
+     * point is barren or outside the field
+     */
+    public int componentAt(Point point) {
+        long x = point.getX();
+        long y = point.getY();
+        if (columns == 0 || x < xs[0] || x >= xs[columns] || y < ys[0] || y >= ys[rows]) {
+            return -1;
+        }
+        return labels[cell(ys, rows, y) * columns + cell(xs, columns, x)];
+    }
+
+    /**
+     * Gets the area of the component containing the specified point.
+     *
+     * @param point point to look up
+     * @return the area of the component, or {@code 0} if the point is barren or outside the field
+     */
+    public long componentAreaAt(Point point) {
+        int component = componentAt(point);
+        return component < 0 ? 0 : areas[component];
+    }
+
+    /**
+     * Gets the area of the specified component.
+     *
+     * @param component label of a component, as returned by {@link #componentAt(Point)}
+     * @return the area of the component
+     * @throws IndexOutOfBoundsException if there is no such component
+     */
+    public long componentArea(int component) {
+        if (component < 0 || component >= areas.length) {
+            throw new IndexOutOfBoundsException("no component " + component + " among " + areas.length);
+        }
+        return areas[component];
+    }
+
+    /**
+     * Gets the number of connected patches of green.
+     *
+     * @return the number of components
+     */
+    public int componentCount() {
+        return areas.length;
+    }
+}
@@ -0,0 +1,190 @@
+package com.murasaki.jobs.geometry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshots of the fragments of a {@link RectangleField}, so that a field can be saved and loaded again instead
+ * of being rebuilt by removing every barren rectangle once more.
+ * <p>
+ * A snapshot is a sequence of big-endian {@code int}s: the {@link #MAGIC magic number}, the {@link #VERSION version}
+ * of the layout, flags, the bounds of the field (left, bottom, right, top), the number of fragments and the number of
+ * components. Then come the left coordinates of every fragment, then every bottom, every right and every top, and
+ * then, if the {@link #COMPONENTS} flag is set, the component label of every fragment. Only live fragments are
+ * written, so a snapshot takes sixteen bytes a fragment, or twenty with components, and nothing for the history of
+ * removals that made the fragments. Every value has a fixed width and a fixed place, so loading maps the file and
+ * copies each column straight into the arrays of a {@link FragmentStore}, with nothing to parse.
+ * <p>
+ * The version changes whenever the layout does. Snapshots of a newer version than this class knows are refused rather
+ * than misread, and any future version will go on reading the older ones.
+ */
+final class FieldSnapshot {
+
+    static final int MAGIC = 0x42_4C_53_46; // "BLSF"
+    static final int VERSION = 1;
+
+    /**
+     * Flag set when the snapshot holds the component label of every fragment.
+     */
+    static final int COMPONENTS = 1;
+
+    private static final int HEADER_INTS = 9;
+
+    private FieldSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the specified fragments. The file is written under a temporary name and then moved into
+     * place, so that a reader never sees a partly written snapshot.
+     *
+     * @param file       file to write, replaced if it exists
+     * @param bounds     bounds of the field
+     * @param fragments  fragments of the field
+     * @param labels     component label of each live fragment in slot order numbered from zero, or {@code null} to
+     *                   leave the components out
+     * @throws IOException if writing fails
+     */
+    static void write(Path file, Rectangle bounds, FragmentStore fragments, int[] labels) throws IOException {
+        int componentCount = 0;
+        if (labels != null) {
+            for (int label : labels) {
+                componentCount = Math.max(componentCount, label + 1);
+            }
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, "snapshot", ".tmp");
+        try {
+            try (OutputStream output = Files.newOutputStream(temporary);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output, 65536))) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeInt(labels == null ? 0 : COMPONENTS);
+                data.writeInt(bounds.getLowerLeft().getX());
+                data.writeInt(bounds.getLowerLeft().getY());
+                data.writeInt(bounds.getUpperRight().getX());
+                data.writeInt(bounds.getUpperRight().getY());
+                data.writeInt(fragments.size());
+                data.writeInt(componentCount);
+                for (int column = 0; column < 4; column++) {
+                    for (int slot = 0; slot < fragments.end(); slot++) {
+                        if (fragments.isLive(slot)) {
+                            data.writeInt(coordinate(fragments, slot, column));
+                        }
+                    }
+                }
+                if (labels != null) {
+                    for (int label : labels) {
+                        data.writeInt(label);
+                    }
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static int coordinate(FragmentStore fragments, int slot, int column) {
+        switch (column) {
+            case 0:
+                return fragments.left(slot);
+            case 1:
+                return fragments.bottom(slot);
+            case 2:
+                return fragments.right(slot);
+            default:
+                return fragments.top(slot);
+        }
+    }
+
+    /**
+     * Reads a snapshot by mapping the file into memory. A snapshot saved with its components gives a field that
+     * {@linkplain RectangleField#trackComponents() tracks its components}, taking them over from the snapshot.
+     *
+     * @param file snapshot to read
+     * @return a field holding the fragments of the snapshot
+     * @throws IOException if reading fails, or the file is not a snapshot this class can read
+     */
+    static RectangleField read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_INTS * 4) {
+                throw new IOException("not a field snapshot: " + file);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("snapshot is too large to map: " + size + " bytes");
+            }
+            IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asIntBuffer();
+            if (ints.get() != MAGIC) {
+                throw new IOException("not a field snapshot: " + file);
+            }
+            int version = ints.get();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("snapshot version " + version + " is not supported, at most " + VERSION);
+            }
+            int flags = ints.get();
+            if ((flags & ~COMPONENTS) != 0) {
+                throw new IOException("unknown snapshot flags: " + Integer.toHexString(flags));
+            }
+            int left = ints.get();
+            int bottom = ints.get();
+            int right = ints.get();
+            int top = ints.get();
+            int count = ints.get();
+            int componentCount = ints.get();
+            boolean components = (flags & COMPONENTS) != 0;
+            long expected = 4L * (HEADER_INTS + (long) count * (components ? 5 : 4));
+            if (count < 0 || componentCount < 0 || (!components && componentCount != 0) || size != expected
+                    || left > right || bottom > top) {
+                throw new IOException("corrupt snapshot: " + file);
+            }
+
+            int[][] columns = new int[4][count];
+            for (int[] column : columns) {
+                ints.get(column);
+            }
+            FragmentStore fragments = FragmentStore.of(columns[0], columns[1], columns[2], columns[3], count);
+            for (int slot = 0; slot < count; slot++) {
+                if (fragments.left(slot) < left || fragments.left(slot) > fragments.right(slot)
+                        || fragments.right(slot) > right || fragments.bottom(slot) < bottom
+                        || fragments.bottom(slot) > fragments.top(slot) || fragments.top(slot) > top) {
+                    throw new IOException("corrupt snapshot, fragment " + slot + " is out of bounds: " + file);
+                }
+            }
+            int[] labels = null;
+            if (components) {
+                labels = new int[count];
+                ints.get(labels);
+                boolean[] used = new boolean[componentCount];
+                int usedCount = 0;
+                for (int label : labels) {
+                    if (label < 0 || label >= componentCount) {
+                        throw new IOException("corrupt snapshot, component " + label + " out of range: " + file);
+                    }
+                    if (!used[label]) {
+                        used[label] = true;
+                        usedCount++;
+                    }
+                }
+                if (usedCount != componentCount) {
+                    throw new IOException("corrupt snapshot, components without fragments: " + file);
+                }
+            }
+            Rectangle bounds = new Rectangle(new Point(left, bottom), new Point(right, top));
+            return new RectangleField(bounds, fragments, labels, componentCount);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Storage for the rectangular fragments of a field. Coordinates are kept in parallel {@code int} arrays indexed by
+ * slot, so that the hot loops over fragments never have to create or follow {@link Rectangle} and {@link Point}
+ * objects. Slots of removed fragments are reused by the fragments added after them.
+ * <p>
+ * Fragments can also be looked up by their exact bounds through an open addressing hash table of slots, probed
+ * linearly. The hash of each fragment is worked out once from its two packed corners and kept with its slot, so the
+ * table can be grown and entries can be shifted back on removal without touching the coordinates again. The table is
+ * only built by the first lookup and kept up to date from then on, because keeping it costs every split a little and
+ * most fields never look a fragment up.
+ */
+final class FragmentStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EMPTY = 0;
+
+    private int[] left = new int[INITIAL_CAPACITY];
+    private int[] bottom = new int[INITIAL_CAPACITY];
+    private int[] right = new int[INITIAL_CAPACITY];
+    private int[] top = new int[INITIAL_CAPACITY];
+    private boolean[] live = new boolean[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    // slot + 1 of each fragment at the position its hash probes to, or EMPTY; at most half full, null until needed
+    private int[] table;
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int end;
+    private int size;
+
+    /**
+     * Adds a fragment spanning {@code left..right} horizontally and {@code bottom..top} vertically.
+     *
+     * @return the slot holding the fragment
+     */
+    int add(int left, int bottom, int right, int top) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (end == this.left.length) {
+                grow();
+            }
+            slot = end++;
+        }
+        if (table != null && (size + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        this.live[slot] = true;
+        place(slot, left, bottom, right, top);
+        size++;
+        return slot;
+    }
+
+    /**
+     * Adds the specified rectangle as a fragment.
+     *
+     * @param rectangle rectangle to add
+     * @return the slot holding the fragment
+     */
+    int add(Rectangle rectangle) {
+        return add(rectangle.getLowerLeft().getX(), rectangle.getLowerLeft().getY(),
+                rectangle.getUpperRight().getX(), rectangle.getUpperRight().getY());
+    }
+
+    /**
+     * Changes the bounds of the fragment in the specified slot.
+     *
+     * @param slot slot of a live fragment
+     */
+    void update(int slot, int left, int bottom, int right, int top) {
+        unhash(slot);
+        place(slot, left, bottom, right, top);
+    }
+
+    /**
+     * Replaces the fragment in the specified slot with the specified pieces of it, in one step. The first piece takes
+     * over the slot, so a fragment that is trimmed rather than split changes no slots at all, and only the other
+     * pieces are given new slots.
+     *
+     * @param slot   slot of a live fragment
+     * @param pieces coordinates of the pieces, four per piece in the order left, bottom, right, top
+     * @param count  number of pieces, zero to just remove the fragment
+     * @param slots  receives the slot holding each piece
+     */
+    void replace(int slot, int[] pieces, int count, int[] slots) {
+        if (count == 0) {
+            free(slot);
+            return;
+        }
+        update(slot, pieces[0], pieces[1], pieces[2], pieces[3]);
+        slots[0] = slot;
+        for (int piece = 1; piece < count; piece++) {
+            int offset = piece * 4;
+            slots[piece] = add(pieces[offset], pieces[offset + 1], pieces[offset + 2], pieces[offset + 3]);
+        }
+    }
+
+    /**
+     * Removes the fragment in the specified slot and makes the slot available for reuse.
+     *
+     * @param slot slot of a live fragment
+     */
+    void free(int slot) {
+        unhash(slot);
+        live[slot] = false;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    private void grow() {
+        int capacity = left.length * 2;
+        left = Arrays.copyOf(left, capacity);
+        bottom = Arrays.copyOf(bottom, capacity);
+        right = Arrays.copyOf(right, capacity);
+        top = Arrays.copyOf(top, capacity);
+        live = Arrays.copyOf(live, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+    }
+
+    /**
+     * Sets the bounds of a slot and enters it in the hash table.
+     */
+    private void place(int slot, int left, int bottom, int right, int top) {
+        this.left[slot] = left;
+        this.bottom[slot] = bottom;
+        this.right[slot] = right;
+        this.top[slot] = top;
+        if (table == null) {
+            return;
+        }
+        hashes[slot] = hash(left, bottom, right, top);
+        int mask = table.length - 1;
+        int position = hashes[slot] & mask;
+        while (table[position] != EMPTY) {
+            position = (position + 1) & mask;
+        }
+        table[position] = slot + 1;
+    }
+
+    /**
+     * Takes a slot out of the hash table, shifting back any later entries of the same probe run that would otherwise
+     * no longer be found.
+     */
+    private void unhash(int slot) {
+        if (table == null) {
+            return;
+        }
+        int mask = table.length - 1;
+        int position = hashes[slot] & mask;
+        while (table[position] != slot + 1) {
+            position = (position + 1) & mask;
+        }
+        int next = position;
+        while (true) {
+            next = (next + 1) & mask;
+            if (table[next] == EMPTY) {
+                break;
+            }
+            int home = hashes[table[next] - 1] & mask;
+            // the entry at next may fill the hole unless its home lies cyclically after the hole and up to next
+            boolean stays = position <= next ? position < home && home <= next : position < home || home <= next;
+            if (!stays) {
+                table[position] = table[next];
+                position = next;
+            }
+        }
+        table[position] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        boolean hashed = table != null;
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int slot = 0; slot < end; slot++) {
+            if (live[slot]) {
+                if (!hashed) {
+                    hashes[slot] = hash(left[slot], bottom[slot], right[slot], top[slot]);
+                }
+                int position = hashes[slot] & mask;
+                while (table[position] != EMPTY) {
+                    position = (position + 1) & mask;
+                }
+                table[position] = slot + 1;
+            }
+        }
+    }
+
+    /**
+     * Hashes the bounds of a fragment by packing each corner into a {@code long} and mixing the two.
+     */
+    private static int hash(int left, int bottom, int right, int top) {
+        long lowerLeft = ((long) left << 32) | (bottom & 0xFFFFFFFFL);
+        long upperRight = ((long) right << 32) | (top & 0xFFFFFFFFL);
+        long mixed = (lowerLeft * 0x9E3779B97F4A7C15L) ^ upperRight;
+        mixed *= 0xBF58476D1CE4E5B9L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    int left(int slot) {
+        return left[slot];
+    }
+
+    int bottom(int slot) {
+        return bottom[slot];
+    }
+
+    int right(int slot) {
+        return right[slot];
+    }
+
+    int top(int slot) {
+        return top[slot];
+    }
+
+    /**
+     * Checks whether the specified slot holds a fragment. Slots from zero up to {@link #end()} may be live.
+     *
+     * @param slot slot to check
+     * @return {@code true} if the slot holds a fragment
+     */
+    boolean isLive(int slot) {
+        return live[slot];
+    }
+
+    /**
+     * Gets one past the highest slot that has ever held a fragment.
+     *
+     * @return the upper bound for slot numbers
+     */
+    int end() {
+        return end;
+    }
+
+    /**
+     * Gets the number of fragments held.
+     *
+     * @return the number of fragments
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the area of the fragment in the specified slot.
+     *
+     * @param slot slot of a live fragment
+     * @return the area of the fragment
+     */
+    long area(int slot) {
+        return ((long) right[slot] - left[slot] + 1) * ((long) top[slot] - bottom[slot] + 1);
+    }
+
+    /**
+     * Gets the total area of all fragments held.
+     *
+     * @return the total area of the fragments
+     */
+    long totalArea() {
+        long result = 0;
+        for (int slot = 0; slot < end; slot++) {
+            if (live[slot]) {
+                result += area(slot);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a fragment with exactly the bounds of the specified rectangle is held.
+     *
+     * @param rectangle rectangle to look for
+     * @return {@code true} if the rectangle is one of the fragments
+     */
+    boolean contains(Rectangle rectangle) {
+        if (rectangle == null) {
+            return false;
+        }
+        return find(rectangle.getLowerLeft().getX(), rectangle.getLowerLeft().getY(),
+                rectangle.getUpperRight().getX(), rectangle.getUpperRight().getY()) >= 0;
+    }
+
+    /**
+     * Finds the fragment with exactly the specified bounds.
+     *
+     * @return the slot holding the fragment, or -1 if there is none
+     */
+    int find(int left, int bottom, int right, int top) {
+        if (table == null) {
+            rehash(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, size)) * 4));
+        }
+        int hash = hash(left, bottom, right, top);
+        int mask = table.length - 1;
+        for (int position = hash & mask; table[position] != EMPTY; position = (position + 1) & mask) {
+            int slot = table[position] - 1;
+            if (hashes[slot] == hash && this.left[slot] == left && this.bottom[slot] == bottom
+                    && this.right[slot] == right && this.top[slot] == top) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies the fragments, keeping their slots. The copy has no lookup table until it is first searched.
+     *
+     * @return a store holding the same fragments, which does not change when this one does
+     */
+    FragmentStore copy() {
+        FragmentStore copy = new FragmentStore();
+        int capacity = Math.max(end, INITIAL_CAPACITY);
+        copy.left = Arrays.copyOf(left, capacity);
+        copy.bottom = Arrays.copyOf(bottom, capacity);
+        copy.right = Arrays.copyOf(right, capacity);
+        copy.top = Arrays.copyOf(top, capacity);
+        copy.live = Arrays.copyOf(live, capacity);
+        copy.hashes = new int[capacity];
+        copy.freeSlots = Arrays.copyOf(freeSlots, Math.max(freeCount, INITIAL_CAPACITY));
+        copy.freeCount = freeCount;
+        copy.end = end;
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Creates a store holding the specified fragments in slots {@code 0} to {@code count - 1}. The arrays are taken
+     * over rather than copied, so they must not be used afterwards. The store has no lookup table until it is first
+     * searched.
+     *
+     * @param left   left x coordinate of each fragment
+     * @param bottom bottom y coordinate of each fragment
+     * @param right  right x coordinate of each fragment
+     * @param top    top y coordinate of each fragment
+     * @param count  number of fragments, the arrays must all be the same length and at least this long
+     * @return a store holding the fragments
+     */
+    static FragmentStore of(int[] left, int[] bottom, int[] right, int[] top, int count) {
+        FragmentStore store = new FragmentStore();
+        if (left.length >= INITIAL_CAPACITY) {
+            store.left = left;
+            store.bottom = bottom;
+            store.right = right;
+            store.top = top;
+        } else {
+            store.left = Arrays.copyOf(left, INITIAL_CAPACITY);
+            store.bottom = Arrays.copyOf(bottom, INITIAL_CAPACITY);
+            store.right = Arrays.copyOf(right, INITIAL_CAPACITY);
+            store.top = Arrays.copyOf(top, INITIAL_CAPACITY);
+        }
+        int capacity = store.left.length;
+        store.live = new boolean[capacity];
+        Arrays.fill(store.live, 0, count, true);
+        store.hashes = new int[capacity];
+        store.end = count;
+        store.size = count;
+        return store;
+    }
+
+    /**
+     * Creates a rectangle with the bounds of the fragment in the specified slot.
+     *
+     * @param slot slot of a live fragment
+     * @return a rectangle equal to the fragment
+     */
+    Rectangle rectangle(int slot) {
+        return new Rectangle(new Point(left[slot], bottom[slot]), new Point(right[slot], top[slot]));
+    }
+}
@@ -0,0 +1,216 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index that buckets the fragments of a {@link FragmentStore} into a uniform grid laid over a fixed bounding
+ * rectangle. Every fragment slot is registered in each cell it overlaps, so a lookup only has to look at the cells
+ * covered by the query instead of at every fragment.
+ */
+class GridIndex {
+
+    private static final int MAX_CELLS_PER_SIDE = 32;
+
+    private final FragmentStore fragments;
+    private final int left;
+    private final int bottom;
+    private final int right;
+    private final int top;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int columns;
+    private final int[][] cells;
+    private final int[] cellSizes;
+    private int[] marks = new int[0];
+    private int mark;
+    private int[] result = new int[16];
+    private int tests;
+
+    /**
+     * Creates an empty index covering the specified bounds. Fragments added to the index must lie within the bounds.
+     *
+     * @param bounds    area covered by the index, or {@code null} for an index that never holds anything
+     * @param fragments store holding the coordinates of the indexed slots
+     */
+    GridIndex(Rectangle bounds, FragmentStore fragments) {
+        if (bounds == null) {
+            // an empty field, nothing will ever be added so a single cell at the origin is enough
+            bounds = new Rectangle(new Point(0, 0), new Point(0, 0));
+        }
+        this.fragments = fragments;
+        this.left = bounds.getLowerLeft().getX();
+        this.bottom = bounds.getLowerLeft().getY();
+        this.right = bounds.getUpperRight().getX();
+        this.top = bounds.getUpperRight().getY();
+        // the span of a side can be one more than an int holds
+        long width = (long) right - left + 1;
+        long height = (long) top - bottom + 1;
+        this.cellWidth = cellSize(width);
+        this.cellHeight = cellSize(height);
+        this.columns = (int) ((width - 1) / cellWidth + 1);
+        int rows = (int) ((height - 1) / cellHeight + 1);
+        this.cells = new int[columns * rows][];
+        this.cellSizes = new int[columns * rows];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new int[4];
+        }
+    }
+
+    /**
+     * Gets the area covered by this index.
+     *
+     * @return the bounds of the index
+     */
+    Rectangle bounds() {
+        return new Rectangle(new Point(left, bottom), new Point(right, top));
+    }
+
+    /**
+     * Gets the size of a cell such that the specified length is divided into at most {@link #MAX_CELLS_PER_SIDE} cells.
+     *
+     * @param length length of the side of the bounds
+     * @return the length of a cell along that side, never more than the side itself
+     */
+    private static int cellSize(long length) {
+        return (int) Math.min(length, (length + MAX_CELLS_PER_SIDE - 1) / MAX_CELLS_PER_SIDE);
+    }
+
+    /**
+     * Adds the fragment slot to every cell that the fragment overlaps.
+     *
+     * @param slot slot of a live fragment
+     */
+    void add(int slot) {
+        int column1 = column(fragments.left(slot));
+        int column2 = column(fragments.right(slot));
+        int row1 = row(fragments.bottom(slot));
+        int row2 = row(fragments.top(slot));
+        for (int row = row1; row <= row2; row++) {
+            for (int column = column1; column <= column2; column++) {
+                int cell = row * columns + column;
+                if (cellSizes[cell] == cells[cell].length) {
+                    cells[cell] = Arrays.copyOf(cells[cell], cellSizes[cell] * 2);
+                }
+                cells[cell][cellSizes[cell]++] = slot;
+            }
+        }
+    }
+
+    /**
+     * Removes the fragment slot from every cell that the fragment overlaps. This must be done before the slot is freed
+     * in the store.
+     *
+     * @param slot slot of a live fragment
+     */
+    void remove(int slot) {
+        int column1 = column(fragments.left(slot));
+        int column2 = column(fragments.right(slot));
+        int row1 = row(fragments.bottom(slot));
+        int row2 = row(fragments.top(slot));
+        for (int row = row1; row <= row2; row++) {
+            for (int column = column1; column <= column2; column++) {
+                int cell = row * columns + column;
+                int[] slots = cells[cell];
+                for (int i = 0; i < cellSizes[cell]; i++) {
+                    if (slots[i] == slot) {
+                        // order within a cell does not matter, so fill the gap with the last entry
+                        slots[i] = slots[--cellSizes[cell]];
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every slot from the index.
+     */
+    void clear() {
+        Arrays.fill(cellSizes, 0);
+    }
+
+    /**
+     * Finds all indexed fragments that intersect with the specified bounds. Only the cells that the bounds overlap are
+     * examined. The slots found are available through {@link #result(int)} until the next search.
+     *
+     * @return the number of fragments found
+     */
+    int intersecting(int left, int bottom, int right, int top) {
+        if (left > this.right || right < this.left || bottom > this.top || top < this.bottom) {
+            tests = 0;
+            return 0;
+        }
+        if (marks.length < fragments.end()) {
+            marks = Arrays.copyOf(marks, Math.max(fragments.end(), marks.length * 2));
+        }
+        if (++mark == 0) {
+            // the mark wrapped around, forget every old mark so none of them can be mistaken for the new one
+            Arrays.fill(marks, 0);
+            mark = 1;
+        }
+        int count = 0;
+        int tested = 0;
+        int column1 = column(left);
+        int column2 = column(right);
+        int row1 = row(bottom);
+        int row2 = row(top);
+        for (int row = row1; row <= row2; row++) {
+            for (int column = column1; column <= column2; column++) {
+                int cell = row * columns + column;
+                int[] slots = cells[cell];
+                for (int i = 0; i < cellSizes[cell]; i++) {
+                    int slot = slots[i];
+                    if (marks[slot] == mark) {
+                        continue; // already seen in another cell
+                    }
+                    marks[slot] = mark;
+                    tested++;
+                    if (Rectangle.overlaps(fragments.left(slot), fragments.bottom(slot), fragments.right(slot),
+                            fragments.top(slot), left, bottom, right, top)) {
+                        if (count == result.length) {
+                            result = Arrays.copyOf(result, count * 2);
+                        }
+                        result[count++] = slot;
+                    }
+                }
+            }
+        }
+        tests = tested;
+        return count;
+    }
+
+    /**
+     * Gets a fragment slot found by the last search.
+     *
+     * @param index position in the result, less than the count returned by the search
+     * @return the fragment slot
+     * @see #intersecting(int, int, int, int)
+     */
+    int result(int index) {
+        return result[index];
+    }
+
+    /**
+     * Gets the number of fragments that the last search tested for intersection, after discarding those already seen
+     * in another cell.
+     *
+     * @return the number of intersection tests made by the last search
+     */
+    int tests() {
+        return tests;
+    }
+
+    /**
+     * Gets the column of the cell containing the x coordinate, clamped to the grid.
+     */
+    private int column(int x) {
+        return (int) (((long) Math.min(Math.max(x, left), right) - left) / cellWidth);
+    }
+
+    /**
+     * Gets the row of the cell containing the y coordinate, clamped to the grid.
+     */
+    private int row(int y) {
+        return (int) (((long) Math.min(Math.max(y, bottom), top) - bottom) / cellHeight);
+    }
+}
@@ -0,0 +1,41 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Sorts indices by primitive keys without boxing them.
+ */
+final class IndexOrder {
+
+    private IndexOrder() {
+    }
+
+    /**
+     * Gets the indices {@code 0..size-1} ordered by the first key, then by the second key, and so on. Each key array
+     * holds the key of index {@code i} at position {@code i}. Indices with equal keys keep their relative order.
+     *
+     * @param size number of indices to order
+     * @param keys keys to order by, most significant first
+     * @return the ordered indices
+     */
+    static int[] sorted(int size, int[]... keys) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        long[] entries = new long[size];
+        // sort by the least significant key first, every later sort breaks ties by the position from the earlier one
+        for (int key = keys.length - 1; key >= 0; key--) {
+            for (int position = 0; position < size; position++) {
+                entries[position] = ((long) keys[key][order[position]] << 32) | position;
+            }
+            Arrays.sort(entries);
+            int[] next = new int[size];
+            for (int position = 0; position < size; position++) {
+                next[position] = order[(int) entries[position]];
+            }
+            order = next;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,368 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Connected components of the fragments in a {@link FragmentStore}, kept up to date as fragments are split. Removing
+ * green can only shrink or split a component, never join two of them, so after a removal only the components that
+ * lost a fragment have to be looked at again. Each component keeps a linked list of its fragment slots and its total
+ * area, and the distinct areas of all components are kept in a sorted array, each with the number of components of
+ * that area, so that listing them in order needs no sort and keeping them up to date allocates nothing.
+ * <p>
+ * A fragment that is split is detached from its component, and its pieces are attached to the same component, which
+ * keeps the area of the component up to date. Once every piece is in place, {@link #settle()} finds the components of
+ * each touched component's fragments, splitting it where the removal cut it apart. That costs as much as the
+ * component is large, so when the caller can tell that the removal cannot have cut anything apart,
+ * {@link #settle(boolean)} skips it and only records the new areas.
+ */
+final class LiveComponents {
+
+    private static final int NONE = -1;
+
+    private final FragmentStore fragments;
+    // by slot
+    private int[] componentOf = new int[16];
+    private int[] nextMember = new int[16];
+    private int[] previousMember = new int[16];
+    // by component
+    private int[] firstMember = new int[16];
+    private int[] memberCount = new int[16];
+    private long[] areas = new long[16];
+    private boolean[] touched = new boolean[16];
+    private int[] freeComponents = new int[16];
+    private int freeCount;
+    private int componentEnd;
+    private int[] touchedComponents = new int[16];
+    private int touchedCount;
+    // distinct areas of the settled components in ascending order, and how many components have each
+    private long[] distinctAreas = new long[16];
+    private int[] areaCounts = new int[16];
+    private int distinctCount;
+
+    /**
+     * Finds the components of the fragments currently held in the store.
+     *
+     * @param fragments fragments to keep the components of
+     */
+    LiveComponents(FragmentStore fragments) {
+        this.fragments = fragments;
+        rebuild();
+    }
+
+    /**
+     * Takes over components that are already known, such as those saved with a snapshot of the fragments, instead of
+     * finding them again.
+     *
+     * @param fragments fragments to keep the components of
+     * @param labels    component label of each live fragment in slot order, numbered from zero
+     * @param count     number of components
+     */
+    LiveComponents(FragmentStore fragments, int[] labels, int count) {
+        this.fragments = fragments;
+        long[] sums = new long[count];
+        int i = 0;
+        for (int slot = 0; slot < fragments.end(); slot++) {
+            if (fragments.isLive(slot)) {
+                sums[labels[i++]] += fragments.area(slot);
+            }
+        }
+        restore(labels, sums);
+    }
+
+    /**
+     * Forgets every component and finds them again from the fragments currently held in the store. Needed after the
+     * fragments are rearranged other than by attaching and detaching them, such as when they are coalesced.
+     */
+    void rebuild() {
+        Components components = Components.of(fragments);
+        restore(components.labels(), components.areas());
+    }
+
+    /**
+     * Replaces every component with the specified ones.
+     *
+     * @param labels component label of each live fragment in slot order
+     * @param sums   area of each component, indexed by label
+     */
+    private void restore(int[] labels, long[] sums) {
+        distinctCount = 0;
+        freeCount = 0;
+        componentEnd = 0;
+        touchedCount = 0;
+        if (componentOf.length < fragments.end()) {
+            growSlots(fragments.end());
+        }
+        for (long sum : sums) {
+            // components are numbered from zero after a restore, so each label is also its component number
+            newComponent(sum);
+        }
+        int i = 0;
+        for (int slot = 0; slot < fragments.end(); slot++) {
+            if (fragments.isLive(slot)) {
+                link(slot, labels[i++]);
+            }
+        }
+    }
+
+    /**
+     * Detaches the fragment in the specified slot from its component before the fragment is removed from the store.
+     *
+     * @param slot slot of a live fragment
+     * @return the component that the fragment belonged to
+     */
+    int detach(int slot) {
+        int component = componentOf[slot];
+        unlink(slot);
+        if (!touched[component]) {
+            touched[component] = true;
+            if (touchedCount == touchedComponents.length) {
+                touchedComponents = Arrays.copyOf(touchedComponents, touchedCount * 2);
+            }
+            touchedComponents[touchedCount++] = component;
+            removeArea(areas[component]); // counted again once the component has settled
+        }
+        areas[component] -= fragments.area(slot);
+        return component;
+    }
+
+    /**
+     * Attaches the fragment in the specified slot, which was just added to the store, to the specified component.
+     *
+     * @param slot      slot of a live fragment
+     * @param component component that the fragment was cut from
+     */
+    void attach(int slot, int component) {
+        if (slot >= componentOf.length) {
+            growSlots(slot + 1);
+        }
+        link(slot, component);
+        areas[component] += fragments.area(slot);
+    }
+
+    /**
+     * Recalculates every component that had a fragment detached since the last call, splitting the components that
+     * are no longer connected and dropping those that are left empty.
+     */
+    void settle() {
+        settle(true);
+    }
+
+    /**
+     * Settles every component that had a fragment detached since the last call, dropping those that are left empty.
+     *
+     * @param mayHaveSplit {@code false} if the caller has made sure that no component was cut apart, so that the
+     *                     components only need their new areas recorded; {@code true} to look for components that
+     *                     are no longer connected and split them
+     */
+    void settle(boolean mayHaveSplit) {
+        for (int i = 0; i < touchedCount; i++) {
+            int component = touchedComponents[i];
+            touched[component] = false;
+            if (memberCount[component] == 0) {
+                if (freeCount == freeComponents.length) {
+                    freeComponents = Arrays.copyOf(freeComponents, freeCount * 2);
+                }
+                freeComponents[freeCount++] = component;
+            } else if (mayHaveSplit) {
+                split(component);
+            } else {
+                addArea(areas[component]);
+            }
+        }
+        touchedCount = 0;
+    }
+
+    private void split(int component) {
+        int size = memberCount[component];
+        int[] slots = new int[size];
+        int[] left = new int[size];
+        int[] bottom = new int[size];
+        int[] right = new int[size];
+        int[] top = new int[size];
+        int i = 0;
+        for (int slot = firstMember[component]; slot != NONE; slot = nextMember[slot]) {
+            slots[i] = slot;
+            left[i] = fragments.left(slot);
+            bottom[i] = fragments.bottom(slot);
+            right[i] = fragments.right(slot);
+            top[i] = fragments.top(slot);
+            i++;
+        }
+        Components components = new Components(left, bottom, right, top, size);
+        int[] labels = components.labels();
+        long[] sums = components.areas();
+        // the first label stays with this component, every other label moves its fragments to a new component
+        areas[component] = sums[0];
+        addArea(sums[0]);
+        if (sums.length == 1) {
+            return;
+        }
+        int[] split = new int[sums.length];
+        split[0] = component;
+        for (int label = 1; label < sums.length; label++) {
+            split[label] = newComponent(sums[label]);
+        }
+        for (i = 0; i < size; i++) {
+            if (labels[i] != 0) {
+                unlink(slots[i]);
+                link(slots[i], split[labels[i]]);
+            }
+        }
+    }
+
+    private int newComponent(long area) {
+        int component;
+        if (freeCount > 0) {
+            component = freeComponents[--freeCount];
+        } else {
+            if (componentEnd == firstMember.length) {
+                int capacity = componentEnd * 2;
+                firstMember = Arrays.copyOf(firstMember, capacity);
+                memberCount = Arrays.copyOf(memberCount, capacity);
+                areas = Arrays.copyOf(areas, capacity);
+                touched = Arrays.copyOf(touched, capacity);
+            }
+            component = componentEnd++;
+        }
+        firstMember[component] = NONE;
+        memberCount[component] = 0;
+        areas[component] = area;
+        addArea(area);
+        return component;
+    }
+
+    private void link(int slot, int component) {
+        componentOf[slot] = component;
+        previousMember[slot] = NONE;
+        nextMember[slot] = firstMember[component];
+        if (firstMember[component] != NONE) {
+            previousMember[firstMember[component]] = slot;
+        }
+        firstMember[component] = slot;
+        memberCount[component]++;
+    }
+
+    private void unlink(int slot) {
+        int component = componentOf[slot];
+        if (previousMember[slot] == NONE) {
+            firstMember[component] = nextMember[slot];
+        } else {
+            nextMember[previousMember[slot]] = nextMember[slot];
+        }
+        if (nextMember[slot] != NONE) {
+            previousMember[nextMember[slot]] = previousMember[slot];
+        }
+        memberCount[component]--;
+    }
+
+    private void growSlots(int minimum) {
+        int capacity = Math.max(minimum, componentOf.length * 2);
+        componentOf = Arrays.copyOf(componentOf, capacity);
+        nextMember = Arrays.copyOf(nextMember, capacity);
+        previousMember = Arrays.copyOf(previousMember, capacity);
+    }
+
+    private void addArea(long area) {
+        int i = Arrays.binarySearch(distinctAreas, 0, distinctCount, area);
+        if (i >= 0) {
+            areaCounts[i]++;
+            return;
+        }
+        i = -i - 1;
+        if (distinctCount == distinctAreas.length) {
+            distinctAreas = Arrays.copyOf(distinctAreas, distinctCount * 2);
+            areaCounts = Arrays.copyOf(areaCounts, distinctCount * 2);
+        }
+        System.arraycopy(distinctAreas, i, distinctAreas, i + 1, distinctCount - i);
+        System.arraycopy(areaCounts, i, areaCounts, i + 1, distinctCount - i);
+        distinctAreas[i] = area;
+        areaCounts[i] = 1;
+        distinctCount++;
+    }
+
+    private void removeArea(long area) {
+        int i = Arrays.binarySearch(distinctAreas, 0, distinctCount, area);
+        if (--areaCounts[i] == 0) {
+            distinctCount--;
+            System.arraycopy(distinctAreas, i + 1, distinctAreas, i, distinctCount - i);
+            System.arraycopy(areaCounts, i + 1, areaCounts, i, distinctCount - i);
+        }
+    }
+
+    /**
+     * Gets the component that the fragment in the specified slot belongs to.
+     *
+     * @param slot slot of a live fragment
+     * @return the component of the fragment
+     */
+    int componentOf(int slot) {
+        return componentOf[slot];
+    }
+
+    /**
+     * Gets a dense label for every live fragment such that fragments in the same component share a label, like
+     * {@link Components#labels()} does. Component numbers are reused as components come and go, so they are numbered
+     * again from zero in order of the first fragment of each component.
+     *
+     * @return component label of each live fragment in slot order
+     */
+    int[] labels() {
+        int[] dense = new int[componentEnd];
+        Arrays.fill(dense, NONE);
+        int[] labels = new int[fragments.size()];
+        int count = 0;
+        int i = 0;
+        for (int slot = 0; slot < fragments.end(); slot++) {
+            if (fragments.isLive(slot)) {
+                int component = componentOf[slot];
+                if (dense[component] == NONE) {
+                    dense[component] = count++;
+                }
+                labels[i++] = dense[component];
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Gets the number of components.
+     *
+     * @return the number of components
+     */
+    int size() {
+        return componentEnd - freeCount;
+    }
+
+    /**
+     * Gets the area of every component.
+     *
+     * @return the area of every component in ascending order
+     */
+    long[] areas() {
+        long[] result = new long[size()];
+        int i = 0;
+        for (int distinct = 0; distinct < distinctCount; distinct++) {
+            Arrays.fill(result, i, i + areaCounts[distinct], distinctAreas[distinct]);
+            i += areaCounts[distinct];
+        }
+        return result;
+    }
+
+    /**
+     * Lists the area of every component as a space separated sorted list.
+     *
+     * @return the area of every component in ascending order
+     */
+    String sortedAreasAsString() {
+        StringBuilder result = new StringBuilder();
+        for (int distinct = 0; distinct < distinctCount; distinct++) {
+            for (int i = 0; i < areaCounts[distinct]; i++) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(distinctAreas[distinct]);
+            }
+        }
+        return result.toString();
+    }
+}
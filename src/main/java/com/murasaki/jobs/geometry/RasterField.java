@@ -0,0 +1,200 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Field engine that keeps one bit per unit square of a fixed rectangular field. Barren rectangles are painted into the
+ * bitmap a word at a time, and the green patches are found by flood filling the bits that were never painted. This
+ * does not depend on how many rectangles were removed, so it suits dense inputs on small fields.
+ */
+public class RasterField implements FieldEngine {
+
+    private final int left;
+    private final int bottom;
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] barren;
+
+    /**
+     * Creates a new field where everything inside the specified rectangle is green.
+     *
+     * @param green starting green rectangle
+     * @throws IllegalArgumentException if the rectangle is too large to be held as a bitmap
+     */
+    public RasterField(Rectangle green) {
+        long fieldWidth = (long) green.getUpperRight().getX() - green.getLowerLeft().getX() + 1;
+        long fieldHeight = (long) green.getUpperRight().getY() - green.getLowerLeft().getY() + 1;
+        // column x is held in bit x + 1 of its row, the bits to either side are sentinels that are always barren so
+        // that searching along a row never has to check for the edge of the field
+        long rowWords = (fieldWidth + 2 + 63) / 64;
+        if (rowWords * 64 * fieldHeight > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("field is too large for a raster: " + fieldWidth + "x" + fieldHeight);
+        }
+        this.left = green.getLowerLeft().getX();
+        this.bottom = green.getLowerLeft().getY();
+        this.width = (int) fieldWidth;
+        this.height = (int) fieldHeight;
+        this.wordsPerRow = (int) rowWords;
+        this.barren = new long[wordsPerRow * height];
+        for (int row = 0; row < height; row++) {
+            fill(barren, row, 0, 0);
+            fill(barren, row, width + 1, wordsPerRow * 64 - 1);
+        }
+    }
+
+    /**
+     * Marks every square of the specified rectangle that lies within the field as barren.
+     * @param rectangle rectangle to remove from the field
+     */
+    @Override
+    public void remove(Rectangle rectangle) {
+        if (rectangle == null) {
+            return;
+        }
+        int x1 = Math.max(rectangle.getLowerLeft().getX() - left, 0);
+        int x2 = Math.min(rectangle.getUpperRight().getX() - left, width - 1);
+        int y1 = Math.max(rectangle.getLowerLeft().getY() - bottom, 0);
+        int y2 = Math.min(rectangle.getUpperRight().getY() - bottom, height - 1);
+        if (x1 > x2 || y1 > y2) {
+            return;
+        }
+        for (int row = y1; row <= y2; row++) {
+            fill(barren, row, x1 + 1, x2 + 1);
+        }
+    }
+
+    /**
+     * Gets the area of every connected patch of green, in no particular order.
+     *
+     * @return the area of each connected patch of green
+     */
+    @Override
+    public long[] areas() {
+        long[] visited = barren.clone();
+        long[] areas = new long[16];
+        int count = 0;
+        int[] stack = new int[64];
+        for (int row = 0; row < height; row++) {
+            int x = nextClearBit(visited, row, 1);
+            while (x <= width) {
+                if (count == areas.length) {
+                    areas = Arrays.copyOf(areas, count * 2);
+                }
+                areas[count++] = floodFill(visited, row, x, stack);
+                x = nextClearBit(visited, row, nextSetBit(visited, row, x));
+            }
+        }
+        return Arrays.copyOf(areas, count);
+    }
+
+    /**
+     * Marks every green square connected to the seed as visited and counts them. Whole horizontal runs are filled at
+     * once, and the runs directly above and below are pushed onto an explicit stack instead of recursing.
+     *
+     * @param visited bitmap of squares that are barren or already counted
+     * @param row     row of the seed
+     * @param x       bit of the seed within the row
+     * @param stack   reusable stack space, may be replaced if it is too small
+     * @return the number of squares in the patch
+     */
+    private long floodFill(long[] visited, int row, int x, int[] stack) {
+        int rowBits = wordsPerRow * 64;
+        long area = 0;
+        int size = 0;
+        stack[size++] = row * rowBits + x;
+        while (size > 0) {
+            int seed = stack[--size];
+            int seedRow = seed / rowBits;
+            int seedX = seed % rowBits;
+            if (isSet(visited, seedRow, seedX)) {
+                continue; // reached through another run already
+            }
+            int runStart = previousSetBit(visited, seedRow, seedX) + 1;
+            int runEnd = nextSetBit(visited, seedRow, seedX) - 1;
+            fill(visited, seedRow, runStart, runEnd);
+            area += runEnd - runStart + 1;
+            for (int neighbour = seedRow - 1; neighbour <= seedRow + 1; neighbour += 2) {
+                if (neighbour < 0 || neighbour >= height) {
+                    continue;
+                }
+                int next = nextClearBit(visited, neighbour, runStart);
+                while (next <= runEnd) {
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = neighbour * rowBits + next;
+                    next = nextClearBit(visited, neighbour, nextSetBit(visited, neighbour, next));
+                }
+            }
+        }
+        return area;
+    }
+
+    /**
+     * Sets every bit from {@code from} to {@code to} inclusive in the specified row.
+     */
+    private void fill(long[] bits, int row, int from, int to) {
+        int offset = row * wordsPerRow;
+        int firstWord = from >>> 6;
+        int lastWord = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (firstWord == lastWord) {
+            bits[offset + firstWord] |= firstMask & lastMask;
+            return;
+        }
+        bits[offset + firstWord] |= firstMask;
+        for (int word = firstWord + 1; word < lastWord; word++) {
+            bits[offset + word] = -1L;
+        }
+        bits[offset + lastWord] |= lastMask;
+    }
+
+    private boolean isSet(long[] bits, int row, int bit) {
+        return (bits[row * wordsPerRow + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Gets the first set bit at or after {@code from} in the row. The trailing sentinel guarantees there is one.
+     */
+    private int nextSetBit(long[] bits, int row, int from) {
+        int offset = row * wordsPerRow;
+        int word = from >>> 6;
+        long current = bits[offset + word] & (-1L << from);
+        while (current == 0) {
+            current = bits[offset + ++word];
+        }
+        return word * 64 + Long.numberOfTrailingZeros(current);
+    }
+
+    /**
+     * Gets the first clear bit at or after {@code from} in the row, or a bit past the end of the field if there is
+     * none.
+     */
+    private int nextClearBit(long[] bits, int row, int from) {
+        int offset = row * wordsPerRow;
+        int word = from >>> 6;
+        long current = ~bits[offset + word] & (-1L << from);
+        while (current == 0) {
+            if (++word == wordsPerRow) {
+                return wordsPerRow * 64;
+            }
+            current = ~bits[offset + word];
+        }
+        return word * 64 + Long.numberOfTrailingZeros(current);
+    }
+
+    /**
+     * Gets the last set bit at or before {@code from} in the row. The leading sentinel guarantees there is one.
+     */
+    private int previousSetBit(long[] bits, int row, int from) {
+        int offset = row * wordsPerRow;
+        int word = from >>> 6;
+        long current = bits[offset + word] & (-1L >>> (63 - (from & 63)));
+        while (current == 0) {
+            current = bits[offset + --word];
+        }
+        return word * 64 + 63 - Long.numberOfLeadingZeros(current);
+    }
+}
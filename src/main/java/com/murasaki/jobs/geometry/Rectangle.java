@@ -37,19 +37,14 @@ public class Rectangle {
     }
 
     /**
-     * Creates a new rectangle from the points specifying the lower left and upper right corners. This method will
-     * return {@code null} instead of throwing an exception in the case that parameters are invalid.
-     * @param lowerLeft     lower left corner of the rectangle
-     * @param upperRight    upper right corner of the rectangle
-     * @return a new rectangle with the specified points, or {@code null}
-     * @see #Rectangle(Point, Point)
+     * Creates a new rectangle from coordinates that are already known to be in the correct order, skipping the checks
+     * done by {@link #Rectangle(Point, Point)}.
      */
-    private static Rectangle rectangleOrNull(Point lowerLeft, Point upperRight) {
-        try {
-            return new Rectangle(lowerLeft, upperRight);
-        } catch (IllegalArgumentException ignored) {
-            return null;
-        }
+    private Rectangle(int left, int bottom, int right, int top) {
+        this.lowerLeft = new Point(left, bottom);
+        this.upperRight = new Point(right, top);
+        this.upperLeft = new Point(left, top);
+        this.lowerRight = new Point(right, bottom);
     }
 
     /**
@@ -57,10 +52,10 @@ public class Rectangle {
      *
      * @return the area of this rectangle
      */
-    int area() {
+    long area() {
         // be very careful with off-by-one errors, all rectangles has a witch of 1
-        int width = upperRight.getX() - lowerLeft.getX() + 1;
-        int height = upperRight.getY() - lowerLeft.getY() + 1;
+        long width = (long) upperRight.getX() - lowerLeft.getX() + 1;
+        long height = (long) upperRight.getY() - lowerLeft.getY() + 1;
         return width * height;
     }
 
@@ -71,8 +66,8 @@ public class Rectangle {
      * @param rectangles rectangles to sum the area of
      * @return the total area the rectangles
      */
-    static int calculateArea(Iterable<Rectangle> rectangles) {
-        int result = 0;
+    static long calculateArea(Iterable<Rectangle> rectangles) {
+        long result = 0;
         for (Rectangle rectangle : rectangles) {
             result = result + rectangle.area();
         }
@@ -87,39 +82,119 @@ public class Rectangle {
      */
     Set<Rectangle> remove(Rectangle rectangle) {
         Set<Rectangle> result = new HashSet<>();
-        Rectangle intersection = this.intersection(rectangle);
-        if (intersection == null) {
+        if (!intersects(rectangle)) {
             result.add(this);
             return result;
         }
-
-        int top = this.upperRight.getY();
-        int bottom = this.lowerLeft.getY();
-        int left = this.lowerLeft.getX();
-        int right = this.upperRight.getX();
-
-        int intTop = intersection.upperRight.getY();
-        int intBottom = intersection.lowerLeft.getY();
-        int intLeft = intersection.lowerLeft.getX();
-        int intRight = intersection.upperRight.getX();
-
-        // Break this rectangle into 8 rectangles defined by the corners of the intersection of the rectangle to be
-        // removed, then add each to the result set. In many cases, these will not be valid which means that they were
-        // completely removed. For intuition, draw the case where you are removing something completely enclosed, draw
-        // lines outward from each corner of the rectangle to be removed, then consider the other 8 rectangles
-        result.add(rectangleOrNull(new Point(left, intTop + 1), new Point(intLeft - 1, top)));         // upper left
-        result.add(rectangleOrNull(new Point(intLeft, intTop + 1), new Point(intRight, top)));         // upper
-        result.add(rectangleOrNull(new Point(intRight + 1, intTop + 1), new Point(right, top)));       // upper right
-        result.add(rectangleOrNull(new Point(intRight + 1, intBottom), new Point(right, intTop)));     // right
-        result.add(rectangleOrNull(new Point(intRight + 1, bottom), new Point(right, intBottom - 1))); // lower right
-        result.add(rectangleOrNull(new Point(intLeft, bottom), new Point(intRight, intBottom - 1)));   // lower
-        result.add(rectangleOrNull(new Point(left, bottom), new Point(intLeft - 1, intBottom - 1)));   // lower left
-        result.add(rectangleOrNull(new Point(left, intBottom), new Point(intLeft - 1, intTop)));       // left
-
-        result.remove(null); // remove nulls
+        int[] pieces = new int[32];
+        int count = remove(rectangle, pieces, 0);
+        for (int i = 0; i < count * 4; i += 4) {
+            result.add(new Rectangle(pieces[i], pieces[i + 1], pieces[i + 2], pieces[i + 3]));
+        }
         return result;
     }
 
+    /**
+     * Removes the specified rectangle from this rectangle and writes what remains into the buffer as groups of four
+     * coordinates: left, bottom, right, top. Nothing is allocated, and if the rectangles do not overlap this
+     * rectangle is written as the only piece.
+     *
+     * @param rectangle rectangle to be removed
+     * @param pieces    buffer with room for 8 pieces (32 values) after the offset
+     * @param offset    position in the buffer to write the first piece to
+     * @return the number of pieces written
+     * @see #split(int, int, int, int, int, int, int, int, int[], int)
+     */
+    int remove(Rectangle rectangle, int[] pieces, int offset) {
+        if (rectangle == null) {
+            return piece(lowerLeft.getX(), lowerLeft.getY(), upperRight.getX(), upperRight.getY(), pieces, offset, 0);
+        }
+        return split(lowerLeft.getX(), lowerLeft.getY(), upperRight.getX(), upperRight.getY(),
+                rectangle.lowerLeft.getX(), rectangle.lowerLeft.getY(),
+                rectangle.upperRight.getX(), rectangle.upperRight.getY(), pieces, offset);
+    }
+
+    /**
+     * Checks whether two rectangles given by their coordinates share any area.
+     *
+     * @return {@code true} if the first rectangle overlaps the second
+     */
+    static boolean overlaps(int left1, int bottom1, int right1, int top1,
+                            int left2, int bottom2, int right2, int top2) {
+        return left1 <= right2 && left2 <= right1 && bottom1 <= top2 && bottom2 <= top1;
+    }
+
+    /**
+     * Removes the second rectangle from the first, working on coordinates only. The disjoint pieces that remain are
+     * written into the buffer as groups of four coordinates: left, bottom, right, top. The buffer needs room for up to
+     * 8 pieces (32 values) after the offset. If the rectangles do not overlap, the first rectangle is the only piece.
+     *
+     * @param pieces buffer that the remaining pieces are written to
+     * @param offset position in the buffer to write the first piece to
+     * @return the number of pieces written
+     */
+    static int split(int left, int bottom, int right, int top,
+                     int removeLeft, int removeBottom, int removeRight, int removeTop,
+                     int[] pieces, int offset) {
+        if (!overlaps(left, bottom, right, top, removeLeft, removeBottom, removeRight, removeTop)) {
+            return piece(left, bottom, right, top, pieces, offset, 0);
+        }
+        int intTop = Math.min(top, removeTop);
+        int intBottom = Math.max(bottom, removeBottom);
+        int intLeft = Math.max(left, removeLeft);
+        int intRight = Math.min(right, removeRight);
+
+        // Break the rectangle into 8 rectangles defined by the corners of the intersection of the rectangle to be
+        // removed. In many cases, some of these will be empty which means that they were completely removed. For
+        // intuition, draw the case where you are removing something completely enclosed, draw lines outward from each
+        // corner of the rectangle to be removed, then consider the other 8 rectangles. Emptiness is decided by
+        // comparing edges, so that coordinates at the limits of int cannot wrap around into valid looking pieces.
+        boolean above = intTop < top;
+        boolean below = intBottom > bottom;
+        boolean leftOf = intLeft > left;
+        boolean rightOf = intRight < right;
+        int count = 0;
+        if (above && leftOf) {
+            count += piece(left, intTop + 1, intLeft - 1, top, pieces, offset, count);          // upper left
+        }
+        if (above) {
+            count += piece(intLeft, intTop + 1, intRight, top, pieces, offset, count);          // upper
+        }
+        if (above && rightOf) {
+            count += piece(intRight + 1, intTop + 1, right, top, pieces, offset, count);        // upper right
+        }
+        if (rightOf) {
+            count += piece(intRight + 1, intBottom, right, intTop, pieces, offset, count);      // right
+        }
+        if (below && rightOf) {
+            count += piece(intRight + 1, bottom, right, intBottom - 1, pieces, offset, count);  // lower right
+        }
+        if (below) {
+            count += piece(intLeft, bottom, intRight, intBottom - 1, pieces, offset, count);    // lower
+        }
+        if (below && leftOf) {
+            count += piece(left, bottom, intLeft - 1, intBottom - 1, pieces, offset, count);    // lower left
+        }
+        if (leftOf) {
+            count += piece(left, intBottom, intLeft - 1, intTop, pieces, offset, count);        // left
+        }
+        return count;
+    }
+
+    /**
+     * Writes a piece into the buffer.
+     *
+     * @return the number of pieces written, always 1
+     */
+    private static int piece(int left, int bottom, int right, int top, int[] pieces, int offset, int index) {
+        int position = offset + index * 4;
+        pieces[position] = left;
+        pieces[position + 1] = bottom;
+        pieces[position + 2] = right;
+        pieces[position + 3] = top;
+        return 1;
+    }
+
     /**
      * Checks whether this rectangle and the specified rectangle are non-overlapping and have adjacent corners such
      * that the corners both share a cardinal-direction edge (example: the adjacent corners are both on the left edge of
@@ -141,7 +216,7 @@ public class Rectangle {
                 lowerRight.isAdjacent(rectangle.upperRight) ||
                 upperRight.isAdjacent(rectangle.upperLeft)  ||
                 upperRight.isAdjacent(rectangle.lowerRight);
-        boolean disjoint = this.intersection(rectangle) == null;
+        boolean disjoint = !intersects(rectangle);
         return adjacent && disjoint;
     }
 
@@ -161,27 +236,35 @@ public class Rectangle {
         return false;
     }
 
+    /**
+     * Checks whether this rectangle and the specified rectangle share any area. Unlike
+     * {@link #intersection(Rectangle)} this does not allocate anything.
+     *
+     * @param rectangle rectangle to check for overlap with
+     * @return {@code true} if the rectangles overlap
+     */
+    public boolean intersects(Rectangle rectangle) {
+        return rectangle != null && overlaps(lowerLeft.getX(), lowerLeft.getY(), upperRight.getX(), upperRight.getY(),
+                rectangle.lowerLeft.getX(), rectangle.lowerLeft.getY(),
+                rectangle.upperRight.getX(), rectangle.upperRight.getY());
+    }
+
     /**
      * Gets the rectangular intersection of this rectangle and specified rectangle.
      *
      * @param rectangle rectangle to take the intersection with
-     * @return rectangle representing the area that is within both this rectangle and the specified rectangle.
+     * @return rectangle representing the area that is within both this rectangle and the specified rectangle, or
+     * {@code null} if they do not overlap
      */
     public Rectangle intersection(Rectangle rectangle) {
-        if (rectangle == null) {
-            return null;
+        if (!intersects(rectangle)) {
+            return null; // checked up front so that no objects are created when there is no intersection
         }
         int x1 = Math.max(this.lowerLeft.getX(), rectangle.lowerLeft.getX());
         int y1 = Math.max(this.lowerLeft.getY(), rectangle.lowerLeft.getY());
-        int x2 = Math.min(this.upperRight.getX(), rectangle.lowerRight.getX());
+        int x2 = Math.min(this.upperRight.getX(), rectangle.upperRight.getX());
         int y2 = Math.min(this.upperRight.getY(), rectangle.upperRight.getY());
-        Point newLowerLeft = new Point(x1, y1);
-        Point newUpperRight = new Point(x2, y2);
-        try {
-            return new Rectangle(newLowerLeft, newUpperRight);
-        } catch (IllegalArgumentException illegalArgumentException) {
-            return null; // the intersection isn't a valid rectangle, so there is no intersection
-        }
+        return new Rectangle(x1, y1, x2, y2);
     }
 
 }
@@ -0,0 +1,294 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Field engine for a batch of barren rectangles that are all known before the areas are needed. Instead of splitting
+ * fragments one removal at a time, a single sweep runs across the field from left to right. The x coordinates where a
+ * barren rectangle starts or ends cut the field into vertical slabs, and the green left in a slab is a list of
+ * vertical intervals read from a segment tree of the barren coverage. Intervals in neighbouring slabs that overlap
+ * are connected, so each slab only has to be compared with the one before it.
+ * <p>
+ * Removed rectangles are collected and only swept when the areas are requested.
+ */
+public class SweepField implements FieldEngine {
+
+    private final int left;
+    private final int bottom;
+    private final int right;
+    private final int top;
+    private int[] barren = new int[64];
+    private int count;
+
+    /**
+     * Creates a new field where everything inside the specified rectangle is green.
+     *
+     * @param green starting green rectangle
+     */
+    public SweepField(Rectangle green) {
+        this.left = green.getLowerLeft().getX();
+        this.bottom = green.getLowerLeft().getY();
+        this.right = green.getUpperRight().getX();
+        this.top = green.getUpperRight().getY();
+    }
+
+    /**
+     * Removes the specified rectangle from the field. Only the part within the field is kept, and it is swept when the
+     * areas are next requested.
+     * @param rectangle rectangle to remove from the field
+     */
+    @Override
+    public void remove(Rectangle rectangle) {
+        if (rectangle == null) {
+            return;
+        }
+        int x1 = Math.max(rectangle.getLowerLeft().getX(), left);
+        int y1 = Math.max(rectangle.getLowerLeft().getY(), bottom);
+        int x2 = Math.min(rectangle.getUpperRight().getX(), right);
+        int y2 = Math.min(rectangle.getUpperRight().getY(), top);
+        if (x1 > x2 || y1 > y2) {
+            return;
+        }
+        if (count * 4 == barren.length) {
+            barren = Arrays.copyOf(barren, barren.length * 2);
+        }
+        barren[count * 4] = x1;
+        barren[count * 4 + 1] = y1;
+        barren[count * 4 + 2] = x2;
+        barren[count * 4 + 3] = y2;
+        count++;
+    }
+
+    /**
+     * Gets the area of every connected patch of green, in no particular order.
+     *
+     * @return the area of each connected patch of green
+     */
+    @Override
+    public long[] areas() {
+        // y coordinates are compressed to the boundaries of the field and of the barren rectangles, a boundary is the
+        // first row of an interval or one past its last row, so boundaries are longs in case a top is the largest int
+        long[] boundaries = new long[count * 2 + 2];
+        boundaries[0] = bottom;
+        boundaries[1] = (long) top + 1;
+        for (int i = 0; i < count; i++) {
+            boundaries[i * 2 + 2] = barren[i * 4 + 1];
+            boundaries[i * 2 + 3] = (long) barren[i * 4 + 3] + 1;
+        }
+        Arrays.sort(boundaries);
+        int unique = 1;
+        for (int i = 1; i < boundaries.length; i++) {
+            if (boundaries[i] != boundaries[unique - 1]) {
+                boundaries[unique++] = boundaries[i];
+            }
+        }
+        Sweep sweep = new Sweep(Arrays.copyOf(boundaries, unique));
+
+        // an event is a rectangle starting or ending at an x coordinate, packed with the x relative to the left of the
+        // field in the high bits so that sorting the longs sorts the events by x, ends past the field are not needed
+        long[] events = new long[count * 2];
+        int eventCount = 0;
+        for (int i = 0; i < count; i++) {
+            events[eventCount++] = (((long) barren[i * 4] - left) << 31) | (i * 2);
+            if (barren[i * 4 + 2] < right) {
+                events[eventCount++] = (((long) barren[i * 4 + 2] + 1 - left) << 31) | (i * 2 + 1);
+            }
+        }
+        Arrays.sort(events, 0, eventCount);
+
+        long slabStart = left;
+        for (int event = 0; event < eventCount; event++) {
+            long x = (events[event] >>> 31) + left;
+            if (x > slabStart) {
+                sweep.slab(x - slabStart);
+                slabStart = x;
+            }
+            int index = (int) (events[event] & Integer.MAX_VALUE);
+            int rectangle = index >> 1;
+            int from = Arrays.binarySearch(sweep.boundaries, barren[rectangle * 4 + 1]);
+            int to = Arrays.binarySearch(sweep.boundaries, (long) barren[rectangle * 4 + 3] + 1);
+            sweep.cover(1, 0, sweep.boundaries.length - 1, from, to, (index & 1) == 0 ? 1 : -1);
+        }
+        sweep.slab((long) right + 1 - slabStart);
+        return sweep.areas();
+    }
+
+    /**
+     * State of a sweep across the field: the barren coverage of the current slab, the green intervals of the slab
+     * before it, and the components found so far.
+     */
+    private static final class Sweep {
+
+        final long[] boundaries;
+        // segment tree over the elementary intervals between boundaries, a node counts the rectangles covering all of
+        // its range and records whether anything is covered anywhere below it
+        private final int[] covered;
+        private final boolean[] touched;
+        private int[] intervals = new int[16];
+        private int intervalCount;
+        private int[] previous = new int[16];
+        private int[] previousLabels = new int[8];
+        private int[] labels = new int[8];
+        private int previousCount;
+        private int[] parent = new int[16];
+        private long[] areas = new long[16];
+        private int labelCount;
+
+        Sweep(long[] boundaries) {
+            this.boundaries = boundaries;
+            this.covered = new int[boundaries.length * 4];
+            this.touched = new boolean[boundaries.length * 4];
+        }
+
+        /**
+         * Adds {@code delta} to the coverage of the elementary intervals {@code from..to-1}.
+         */
+        void cover(int node, int low, int high, int from, int to, int delta) {
+            if (from <= low && high <= to) {
+                covered[node] += delta;
+            } else {
+                int middle = (low + high) >>> 1;
+                if (from < middle) {
+                    cover(node * 2, low, middle, from, to, delta);
+                }
+                if (to > middle) {
+                    cover(node * 2 + 1, middle, high, from, to, delta);
+                }
+            }
+            touched[node] = covered[node] > 0
+                    || (high - low > 1 && (touched[node * 2] || touched[node * 2 + 1]));
+        }
+
+        /**
+         * Collects the green intervals of the current coverage. Whole subtrees that are fully covered or not covered at
+         * all are handled without visiting their children, so the work follows the number of intervals found.
+         */
+        private void collect(int node, int low, int high) {
+            if (covered[node] > 0) {
+                return;
+            }
+            if (!touched[node]) {
+                if (intervalCount > 0 && intervals[intervalCount * 2 - 1] == low) {
+                    intervals[intervalCount * 2 - 1] = high;
+                } else {
+                    if (intervalCount * 2 == intervals.length) {
+                        intervals = Arrays.copyOf(intervals, intervals.length * 2);
+                    }
+                    intervals[intervalCount * 2] = low;
+                    intervals[intervalCount * 2 + 1] = high;
+                    intervalCount++;
+                }
+                return;
+            }
+            int middle = (low + high) >>> 1;
+            collect(node * 2, low, middle);
+            collect(node * 2 + 1, middle, high);
+        }
+
+        /**
+         * Adds a slab of the specified width with the current coverage, connecting its green intervals to the
+         * overlapping intervals of the slab before it.
+         */
+        void slab(long width) {
+            intervalCount = 0;
+            collect(1, 0, boundaries.length - 1);
+            if (sameAsPrevious()) {
+                // the same intervals as the slab before, so it only widens the components found there
+                for (int i = 0; i < intervalCount; i++) {
+                    areas[previousLabels[i]] += width * length(i);
+                }
+                return;
+            }
+            if (labels.length < intervalCount) {
+                labels = new int[Math.max(intervalCount, labels.length * 2)];
+            }
+            for (int i = 0; i < intervalCount; i++) {
+                labels[i] = newLabel(width * length(i));
+            }
+            int i = 0;
+            int j = 0;
+            while (i < previousCount && j < intervalCount) {
+                if (previous[i * 2] < intervals[j * 2 + 1] && intervals[j * 2] < previous[i * 2 + 1]) {
+                    union(previousLabels[i], labels[j]);
+                }
+                if (previous[i * 2 + 1] <= intervals[j * 2 + 1]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            int[] swap = previous;
+            previous = intervals;
+            intervals = swap;
+            swap = previousLabels;
+            previousLabels = labels;
+            labels = swap;
+            previousCount = intervalCount;
+        }
+
+        private boolean sameAsPrevious() {
+            if (intervalCount != previousCount) {
+                return false;
+            }
+            for (int i = 0; i < intervalCount * 2; i++) {
+                if (intervals[i] != previous[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long length(int interval) {
+            return boundaries[intervals[interval * 2 + 1]] - boundaries[intervals[interval * 2]];
+        }
+
+        private int newLabel(long area) {
+            if (labelCount == parent.length) {
+                parent = Arrays.copyOf(parent, labelCount * 2);
+                areas = Arrays.copyOf(areas, labelCount * 2);
+            }
+            parent[labelCount] = labelCount;
+            areas[labelCount] = area;
+            return labelCount++;
+        }
+
+        private int find(int label) {
+            while (parent[label] != label) {
+                parent[label] = parent[parent[label]];
+                label = parent[label];
+            }
+            return label;
+        }
+
+        private void union(int a, int b) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA != rootB) {
+                parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+            }
+        }
+
+        /**
+         * Gets the total area of each component found by the sweep.
+         */
+        long[] areas() {
+            long[] sums = new long[labelCount];
+            int components = 0;
+            for (int label = 0; label < labelCount; label++) {
+                int root = find(label);
+                if (root == label) {
+                    components++;
+                }
+                sums[root] += areas[label];
+            }
+            long[] result = new long[components];
+            int next = 0;
+            for (int label = 0; label < labelCount; label++) {
+                if (parent[label] == label) {
+                    result[next++] = sums[label];
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Connected components of one tile of a field that is split into tiles, along with the fragments lying on the borders
+ * that the tile shares with other tiles. Once every tile has been labelled on its own, {@link #stitch(List)} joins the
+ * components that touch across tile borders into the components of the whole field.
+ */
+final class TileComponents {
+
+    private final long[] areas;
+    private final int[] border;
+    private final int[] borderLabels;
+    private final int borderSize;
+
+    private TileComponents(long[] areas, int[] border, int[] borderLabels, int borderSize) {
+        this.areas = areas;
+        this.border = border;
+        this.borderLabels = borderLabels;
+        this.borderSize = borderSize;
+    }
+
+    /**
+     * Labels the components of the fragments of one tile and collects the fragments lying along a border shared with
+     * another tile, along with their labels.
+     *
+     * @param fragments fragments of the tile, all of them inside the tile
+     * @param tile      bounds of the tile
+     * @param field     bounds of the whole field, whose edges are not shared with any other tile
+     * @return the components of the tile
+     */
+    static TileComponents of(FragmentStore fragments, Rectangle tile, Rectangle field) {
+        Components components = Components.of(fragments);
+        int[] labels = components.labels();
+        int[] border = new int[16];
+        int[] borderLabels = new int[4];
+        int size = 0;
+        int index = 0;
+        for (int slot = 0; slot < fragments.end(); slot++) {
+            if (!fragments.isLive(slot)) {
+                continue;
+            }
+            if (onInnerBorder(fragments, slot, tile, field)) {
+                if (size == borderLabels.length) {
+                    border = Arrays.copyOf(border, size * 8);
+                    borderLabels = Arrays.copyOf(borderLabels, size * 2);
+                }
+                border[size * 4] = fragments.left(slot);
+                border[size * 4 + 1] = fragments.bottom(slot);
+                border[size * 4 + 2] = fragments.right(slot);
+                border[size * 4 + 3] = fragments.top(slot);
+                borderLabels[size++] = labels[index];
+            }
+            index++;
+        }
+        return new TileComponents(components.areas(), border, borderLabels, size);
+    }
+
+    private static boolean onInnerBorder(FragmentStore fragments, int slot, Rectangle tile, Rectangle field) {
+        int tileLeft = tile.getLowerLeft().getX();
+        int tileBottom = tile.getLowerLeft().getY();
+        int tileRight = tile.getUpperRight().getX();
+        int tileTop = tile.getUpperRight().getY();
+        return (fragments.left(slot) == tileLeft && tileLeft != field.getLowerLeft().getX())
+                || (fragments.bottom(slot) == tileBottom && tileBottom != field.getLowerLeft().getY())
+                || (fragments.right(slot) == tileRight && tileRight != field.getUpperRight().getX())
+                || (fragments.top(slot) == tileTop && tileTop != field.getUpperRight().getY());
+    }
+
+    /**
+     * Joins the components of every tile that touch across tile borders.
+     *
+     * @param tiles components of every tile of the field
+     * @return the area of each connected patch of green in the whole field, in no particular order
+     */
+    static long[] stitch(List<TileComponents> tiles) {
+        int labelCount = 0;
+        int borderCount = 0;
+        int[] labelOffsets = new int[tiles.size()];
+        for (int t = 0; t < tiles.size(); t++) {
+            labelOffsets[t] = labelCount;
+            labelCount += tiles.get(t).areas.length;
+            borderCount += tiles.get(t).borderSize;
+        }
+
+        // Fragments on either side of a shared tile border have touching edges, so finding the components of just the
+        // border fragments connects the tiles. Fragments within one tile are already labelled the same if they touch.
+        int[] borderLeft = new int[borderCount];
+        int[] borderBottom = new int[borderCount];
+        int[] borderRight = new int[borderCount];
+        int[] borderTop = new int[borderCount];
+        int[] borderLabels = new int[borderCount];
+        int border = 0;
+        for (int t = 0; t < tiles.size(); t++) {
+            TileComponents tile = tiles.get(t);
+            for (int i = 0; i < tile.borderSize; i++, border++) {
+                borderLeft[border] = tile.border[i * 4];
+                borderBottom[border] = tile.border[i * 4 + 1];
+                borderRight[border] = tile.border[i * 4 + 2];
+                borderTop[border] = tile.border[i * 4 + 3];
+                borderLabels[border] = labelOffsets[t] + tile.borderLabels[i];
+            }
+        }
+        int[] stitched = new Components(borderLeft, borderBottom, borderRight, borderTop, borderCount).labels();
+
+        int[] parent = new int[labelCount];
+        for (int label = 0; label < labelCount; label++) {
+            parent[label] = label;
+        }
+        int[] firstLabel = new int[borderCount];
+        Arrays.fill(firstLabel, -1);
+        for (int i = 0; i < borderCount; i++) {
+            if (firstLabel[stitched[i]] < 0) {
+                firstLabel[stitched[i]] = borderLabels[i];
+            } else {
+                union(parent, firstLabel[stitched[i]], borderLabels[i]);
+            }
+        }
+
+        long[] sums = new long[labelCount];
+        int count = 0;
+        for (int t = 0; t < tiles.size(); t++) {
+            long[] areas = tiles.get(t).areas;
+            for (int label = 0; label < areas.length; label++) {
+                int root = find(parent, labelOffsets[t] + label);
+                if (sums[root] == 0) {
+                    count++; // every component has some area, so the first area added marks a new component
+                }
+                sums[root] += areas[label];
+            }
+        }
+        long[] result = new long[count];
+        int next = 0;
+        for (long sum : sums) {
+            if (sum > 0) {
+                result[next++] = sum;
+            }
+        }
+        return result;
+    }
+
+    private static int find(int[] parent, int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Field engine that partitions the field into a grid of tiles that are processed in parallel. Each tile is its own
+ * {@link RectangleField} and only receives the barren rectangles that clip it. Components are found within each tile,
+ * then the components that touch across tile borders are stitched together before the areas are reported.
+ * <p>
+ * Removed rectangles are collected and only applied to the tiles when the areas are requested.
+ */
+public class TiledField implements FieldEngine {
+
+    private final Rectangle bounds;
+    private final List<Tile> tiles = new ArrayList<>();
+    private final ForkJoinPool pool;
+    private final List<Rectangle> pending = new ArrayList<>();
+
+    /**
+     * Creates a new field where everything inside the specified rectangle is green, tiled to suit the number of
+     * processors and run on the common pool.
+     *
+     * @param green starting green rectangle
+     */
+    public TiledField(Rectangle green) {
+        this(green, tilesPerSide(ForkJoinPool.getCommonPoolParallelism()), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new field where everything inside the specified rectangle is green.
+     *
+     * @param green        starting green rectangle
+     * @param tilesPerSide number of tiles along each side of the field, fewer are used if a side is too short
+     * @param pool         pool that the tiles are processed on
+     */
+    public TiledField(Rectangle green, int tilesPerSide, ForkJoinPool pool) {
+        this.bounds = green;
+        this.pool = pool;
+        int[] columns = split(green.getLowerLeft().getX(), green.getUpperRight().getX(), tilesPerSide);
+        int[] rows = split(green.getLowerLeft().getY(), green.getUpperRight().getY(), tilesPerSide);
+        for (int row = 0; row < rows.length - 1; row++) {
+            for (int column = 0; column < columns.length - 1; column++) {
+                tiles.add(new Tile(columns[column], rows[row], columns[column + 1] - 1, rows[row + 1] - 1));
+            }
+        }
+    }
+
+    /**
+     * Gets a number of tiles per side that gives every thread several tiles, so that uneven tiles balance out.
+     */
+    private static int tilesPerSide(int parallelism) {
+        return (int) Math.ceil(Math.sqrt(parallelism * 4));
+    }
+
+    /**
+     * Splits the range {@code low..high} into at most {@code parts} nearly equal parts.
+     *
+     * @return the start of each part, followed by one past the end of the range
+     */
+    static int[] split(int low, int high, int parts) {
+        long length = (long) high - low + 1;
+        parts = (int) Math.max(1, Math.min(parts, length));
+        int[] starts = new int[parts + 1];
+        for (int part = 0; part <= parts; part++) {
+            starts[part] = (int) (low + length * part / parts);
+        }
+        return starts;
+    }
+
+    /**
+     * Removes the specified rectangle from the field. The removal is applied to the tiles when the areas are next
+     * requested.
+     * @param rectangle rectangle to remove from the field
+     */
+    @Override
+    public void remove(Rectangle rectangle) {
+        if (rectangle != null) {
+            pending.add(rectangle);
+        }
+    }
+
+    /**
+     * Gets the area of every connected patch of green, in no particular order. Pending removals are applied and each
+     * tile labels its own components in parallel, then components that touch across tile borders are merged.
+     *
+     * @return the area of each connected patch of green
+     */
+    @Override
+    public long[] areas() {
+        List<Rectangle> removals = new ArrayList<>(pending);
+        pending.clear();
+        inParallel(tile -> tile.removeAll(removals));
+        inParallel(Tile::label);
+        List<TileComponents> components = new ArrayList<>(tiles.size());
+        for (Tile tile : tiles) {
+            components.add(tile.components);
+        }
+        return TileComponents.stitch(components);
+    }
+
+    private void inParallel(Consumer<Tile> action) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(tiles.size());
+        for (Tile tile : tiles) {
+            tasks.add(pool.submit(() -> action.accept(tile)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * One tile of the field, along with the results of labelling its components.
+     */
+    private final class Tile {
+
+        final Rectangle bounds;
+        final RectangleField field;
+        TileComponents components;
+
+        Tile(int left, int bottom, int right, int top) {
+            this.bounds = new Rectangle(new Point(left, bottom), new Point(right, top));
+            this.field = new RectangleField(bounds);
+        }
+
+        void removeAll(List<Rectangle> removals) {
+            for (Rectangle rectangle : removals) {
+                if (bounds.intersects(rectangle)) {
+                    field.remove(rectangle);
+                }
+            }
+        }
+
+        void label() {
+            components = TileComponents.of(field.rectangles, bounds, TiledField.this.bounds);
+        }
+    }
+}
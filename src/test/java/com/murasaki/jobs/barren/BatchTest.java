@@ -0,0 +1,63 @@
+package com.murasaki.jobs.barren;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("batch")
+class BatchTest {
+
+    private static String run(String input, int workers) throws IOException {
+        StringWriter output = new StringWriter();
+        new Batch(Main::process, workers).run(new BufferedReader(new StringReader(input)), output);
+        return output.toString();
+    }
+
+    @Test
+    @DisplayName("answers are written in input order")
+    void inOrder() throws IOException {
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            input.append(i % 3 == 0 ? Examples.EXAMPLE_2 : Examples.EXAMPLE_1).append('\n');
+            expected.append(i % 3 == 0 ? "22816 192608" : "116800 116800").append('\n');
+        }
+        assertEquals(expected.toString(), run(input.toString(), 3));
+    }
+
+    @Test
+    @DisplayName("a bad line is answered with an error and the rest still run")
+    void badLine() throws IOException {
+        String output = run(Examples.EXAMPLE_1 + "\n{\"1 2 3\"}\n" + Examples.EXAMPLE_2 + "\n", 2);
+        String[] lines = output.split("\n");
+        assertAll(
+                () -> assertEquals(3, lines.length),
+                () -> assertEquals("116800 116800", lines[0]),
+                () -> assertTrue(lines[1].startsWith("error: ")),
+                () -> assertEquals("22816 192608", lines[2])
+        );
+    }
+
+    @Test
+    @DisplayName("an error is answered with its message, or the name of the exception without one")
+    void errorMessage() throws IOException {
+        StringWriter output = new StringWriter();
+        Solver failing = input -> {
+            throw input.isEmpty() ? new IllegalStateException() : new IllegalStateException("cannot solve " + input);
+        };
+        new Batch(failing, 1).run(new BufferedReader(new StringReader("x\n\n")), output);
+        assertEquals("error: cannot solve x\nerror: java.lang.IllegalStateException\n", output.toString());
+    }
+
+    @Test
+    @DisplayName("empty input")
+    void empty() throws IOException {
+        assertEquals("", run("", 1));
+    }
+}
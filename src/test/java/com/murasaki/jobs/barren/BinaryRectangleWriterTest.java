@@ -0,0 +1,107 @@
+package com.murasaki.jobs.barren;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("binary rectangle writer")
+class BinaryRectangleWriterTest {
+
+    static byte[] convert(String input) throws IOException {
+        BinaryRectangleWriter writer = new BinaryRectangleWriter();
+        RectangleInputParser.of(input).parse(writer);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(output);
+        return output.toByteArray();
+    }
+
+    @Test
+    @DisplayName("reads back the same rectangles in the same order")
+    void roundTrip() throws IOException {
+        List<int[]> text = RectangleInputParserTest.parse(RectangleInputParser.of(Examples.EXAMPLE_2));
+        List<int[]> binary = RectangleInputParserTest.parse(
+                RectangleInputParser.of(new ByteArrayInputStream(convert(Examples.EXAMPLE_2))));
+        assertEquals(text.size(), binary.size());
+        for (int i = 0; i < text.size(); i++) {
+            assertArrayEquals(text.get(i), binary.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("smaller than the text format")
+    void smaller() throws IOException {
+        assertTrue(convert(Examples.EXAMPLE_2).length * 2 < Examples.EXAMPLE_2.length());
+    }
+
+    @Test
+    @DisplayName("extreme coordinates")
+    void extremes() throws IOException {
+        String input = "{\"2147483647 0 2147483647 2147483647\",\"0 2147483647 2147483647 2147483647\",\"0 0 0 0\"}";
+        List<int[]> rectangles = RectangleInputParserTest.parse(
+                RectangleInputParser.of(new ByteArrayInputStream(convert(input))));
+        assertAll(
+                () -> assertArrayEquals(new int[]{2147483647, 0, 2147483647, 2147483647}, rectangles.get(0)),
+                () -> assertArrayEquals(new int[]{0, 2147483647, 2147483647, 2147483647}, rectangles.get(1)),
+                () -> assertArrayEquals(new int[]{0, 0, 0, 0}, rectangles.get(2))
+        );
+    }
+
+    @Test
+    @DisplayName("many random rectangles split across buffers")
+    void random() throws IOException {
+        Random random = new Random(7);
+        BinaryRectangleWriter writer = new BinaryRectangleWriter();
+        int[][] expected = new int[5000][];
+        for (int i = 0; i < expected.length; i++) {
+            int x = random.nextInt(400);
+            int y = random.nextInt(600);
+            expected[i] = new int[]{x, y, x + random.nextInt(400 - x), y + random.nextInt(600 - y)};
+            writer.accept(expected[i][0], expected[i][1], expected[i][2], expected[i][3]);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(output);
+        byte[] bytes = output.toByteArray();
+        int[] next = {0};
+        List<int[]> rectangles = RectangleInputParserTest.parse(new RectangleInputParser(() -> {
+            if (next[0] == bytes.length) {
+                return null;
+            }
+            int length = Math.min(7, bytes.length - next[0]);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, next[0], length);
+            next[0] += length;
+            return buffer;
+        }));
+        assertEquals(expected.length, rectangles.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], rectangles.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("rejects corners the wrong way round")
+    void rejects() {
+        BinaryRectangleWriter writer = new BinaryRectangleWriter();
+        assertAll(
+                () -> assertEquals("upper right corner is to the left of the lower left corner",
+                        assertThrows(IllegalArgumentException.class, () -> writer.accept(5, 0, 4, 0)).getMessage()),
+                () -> assertEquals("upper right corner is below the lower left corner",
+                        assertThrows(IllegalArgumentException.class, () -> writer.accept(0, 5, 0, 4)).getMessage()),
+                () -> assertEquals(0, writer.count())
+        );
+    }
+
+    @Test
+    @DisplayName("the binary format is processed like the text format")
+    void processed() throws IOException {
+        RectangleInputParser parser = RectangleInputParser.of(new ByteArrayInputStream(convert(Examples.EXAMPLE_2)));
+        assertEquals("22816 192608", Main.process(parser, Engine.FRAGMENT, Main.STANDARD_FIELD));
+    }
+}
@@ -0,0 +1,21 @@
+package com.murasaki.jobs.barren;
+
+/**
+ * Inputs of the examples, shared by the tests of the ways of running the app.
+ */
+final class Examples {
+
+    /**
+     * A single barren strip across the standard field, answered with {@code 116800 116800}.
+     */
+    static final String EXAMPLE_1 = "{\"0 292 399 307\"}";
+
+    /**
+     * Two horizontal and two vertical barren bars on the standard field, answered with {@code 22816 192608}.
+     */
+    static final String EXAMPLE_2 =
+            "{\"48 192 351 207\",\"48 392 351 407\",\"120 52 135 547\",\"260 52 275 547\"}";
+
+    private Examples() {
+    }
+}
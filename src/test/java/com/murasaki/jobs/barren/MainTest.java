@@ -24,4 +24,66 @@ class MainTest {
         assertEquals("22816 192608", output);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("example 2 with the raster engine")
+    void example2Raster() {
+        String input = "{\"48 192 351 207\",\"48 392 351 407\",\"120 52 135 547\",\"260 52 275 547\"}";
+        String output = Main.process(input, Engine.RASTER);
+        assertEquals("22816 192608", output);
+    }
+
+    @Test
+    @DisplayName("example 2 with the sweep engine")
+    void example2Sweep() {
+        String input = "{\"48 192 351 207\",\"48 392 351 407\",\"120 52 135 547\",\"260 52 275 547\"}";
+        String output = Main.process(input, Engine.SWEEP);
+        assertEquals("22816 192608", output);
+    }
+
+    @Test
+    @DisplayName("a field too large for an int area")
+    void largeField() {
+        String input = "{\"0 50000 99999 50000\"}";
+        String output = Main.process(input, Engine.COMPRESSED, Main.parseField("100000x100000"));
+        assertEquals("4999900000 5000000000", output);
+    }
+
+    @Test
+    @DisplayName("options that would be ignored are rejected")
+    void conflictingOptions() {
+        String[][] conflicts = {
+                {"--server", "0", "--batch"},
+                {"--batch", "--convert"},
+                {"--server", "0", "--file", "input.txt"},
+                {"--server", "0", "--profile"},
+                {"--batch", "--profile"},
+                {"--convert", "--profile"},
+                {"--convert", "--engine", "raster"},
+                {"--convert", "--cache", "10"},
+                {"--max-in-flight", "4"},
+                {"--batch", "--max-connections", "4"},
+                {"--top", "1", "--batch"},
+        };
+        for (String[] args : conflicts) {
+            assertThrows(IllegalArgumentException.class, () -> Main.main(args), String.join(" ", args));
+        }
+    }
+
+    @Test
+    @DisplayName("counts must be numbers, and the option is named")
+    void invalidCount() {
+        for (String option : new String[]{"--cache", "--server", "--max-in-flight", "--max-connections", "--top"}) {
+            IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                    () -> Main.main(option, "many"));
+            assertEquals(option + " needs a whole number: many", thrown.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("field size must be width and height")
+    void invalidField() {
+        assertThrows(IllegalArgumentException.class, () -> Main.parseField("400"));
+        assertThrows(IllegalArgumentException.class, () -> Main.parseField("0x600"));
+    }
+
+}
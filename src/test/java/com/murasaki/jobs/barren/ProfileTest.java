@@ -0,0 +1,79 @@
+package com.murasaki.jobs.barren;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("profile")
+class ProfileTest {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final PrintStream report = new PrintStream(bytes, true);
+
+    private String report() {
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("output is the same as an unprofiled run")
+    void sameOutput() throws IOException {
+        String output = new Profile(report).run(RectangleInputParser.of(Examples.EXAMPLE_2), Engine.FRAGMENT,
+                Main.STANDARD_FIELD);
+        assertEquals("22816 192608", output);
+    }
+
+    @Test
+    @DisplayName("every phase is reported")
+    void phases() throws IOException {
+        new Profile(report).run(RectangleInputParser.of(Examples.EXAMPLE_2), Engine.FRAGMENT, Main.STANDARD_FIELD);
+        String report = report();
+        assertAll(
+                () -> assertTrue(report.contains("parse")),
+                () -> assertTrue(report.contains("remove")),
+                () -> assertTrue(report.contains("components")),
+                () -> assertTrue(report.contains("format"))
+        );
+    }
+
+    @Test
+    @DisplayName("the rectangle adding the most fragments comes first")
+    void blowUps() throws IOException {
+        new Profile(report).run(RectangleInputParser.of(Examples.EXAMPLE_2), Engine.FRAGMENT, Main.STANDARD_FIELD);
+        String report = report();
+        String blowUps = report.substring(report.indexOf("largest fragment blow-ups:"));
+        // the first vertical bar cuts through both horizontal bars and the fragments between them
+        assertTrue(blowUps.split("\n")[1].contains("+9 fragments (9 -> 18) from rectangle 2 \"120 52 135 547\""),
+                blowUps);
+    }
+
+    @Test
+    @DisplayName("fragment counts are not traced by other engines")
+    void otherEngine() throws IOException {
+        String output = new Profile(report).run(RectangleInputParser.of(Examples.EXAMPLE_2), Engine.RASTER,
+                Main.STANDARD_FIELD);
+        assertAll(
+                () -> assertEquals("22816 192608", output),
+                () -> assertFalse(report().contains("blow-ups"))
+        );
+    }
+
+    @Test
+    @DisplayName("the engine is named the same whatever the default locale")
+    void locale() throws IOException {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR")); // where the lower case of I is a dotless i
+        try {
+            new Profile(report).run(RectangleInputParser.of(Examples.EXAMPLE_2), Engine.TILED, Main.STANDARD_FIELD);
+        } finally {
+            Locale.setDefault(locale);
+        }
+        assertTrue(report().contains("tiled may do its work"), report());
+    }
+}
@@ -0,0 +1,65 @@
+package com.murasaki.jobs.barren;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("quick main")
+class QuickMainTest {
+
+    /**
+     * Runs the entry point with the input on standard in, returning what it prints to standard out.
+     */
+    private static String run(String input, String... args) throws IOException {
+        InputStream in = System.in;
+        PrintStream out = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            System.setIn(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)));
+            System.setOut(new PrintStream(output, true, "US-ASCII"));
+            QuickMain.main(args);
+        } finally {
+            System.setIn(in);
+            System.setOut(out);
+        }
+        return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    @DisplayName("answers like main without options")
+    void example2() throws IOException {
+        assertEquals(Main.process(Examples.EXAMPLE_2), run(Examples.EXAMPLE_2));
+    }
+
+    @Test
+    @DisplayName("no green left")
+    void noGreen() throws IOException {
+        assertEquals("", run("{\"0 0 399 599\"}"));
+    }
+
+    @Test
+    @DisplayName("options are handed over to main")
+    void options() throws IOException {
+        assertEquals("22816 192608", run(Examples.EXAMPLE_2, "--engine", "sweep"));
+    }
+
+    @Test
+    @DisplayName("only the largest areas")
+    void top() throws IOException {
+        assertEquals("192608", run(Examples.EXAMPLE_2, "--top", "1"));
+    }
+
+    @Test
+    @DisplayName("bad input")
+    void badInput() {
+        assertThrows(IllegalArgumentException.class, () -> run("{\"1 2 3\"}"));
+    }
+}
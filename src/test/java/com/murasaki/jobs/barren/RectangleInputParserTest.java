@@ -0,0 +1,229 @@
+package com.murasaki.jobs.barren;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("rectangle input parser")
+class RectangleInputParserTest {
+
+    static List<int[]> parse(RectangleInputParser parser) throws IOException {
+        List<int[]> result = new ArrayList<>();
+        parser.parse((lowerLeftX, lowerLeftY, upperRightX, upperRightY) ->
+                result.add(new int[]{lowerLeftX, lowerLeftY, upperRightX, upperRightY}));
+        return result;
+    }
+
+    static String errorFor(String input) {
+        return assertThrows(IllegalArgumentException.class, () -> parse(RectangleInputParser.of(input))).getMessage();
+    }
+
+    /**
+     * Creates a parser that is given the input one byte at a time, so that every token crosses a buffer boundary.
+     */
+    static RectangleInputParser byteAtATime(String input) {
+        byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+        int[] next = {0};
+        return new RectangleInputParser(() -> next[0] == bytes.length ? null : ByteBuffer.wrap(bytes, next[0]++, 1));
+    }
+
+    @DisplayName("valid input")
+    static class Valid {
+
+        @Test
+        @DisplayName("streams every rectangle")
+        void streams() throws IOException {
+            String input = "{\"48 192 351 207\",\"48 392 351 407\",\"120 52 135 547\",\"260 52 275 547\"}";
+            List<int[]> rectangles = parse(RectangleInputParser.of(input));
+            assertAll(
+                    () -> assertEquals(4, rectangles.size()),
+                    () -> assertArrayEquals(new int[]{48, 192, 351, 207}, rectangles.get(0)),
+                    () -> assertArrayEquals(new int[]{260, 52, 275, 547}, rectangles.get(3))
+            );
+        }
+
+        @Test
+        @DisplayName("input split across many buffers")
+        void manyBuffers() throws IOException {
+            List<int[]> rectangles = parse(byteAtATime("{\"48 192 351 207\",\"1 2 3 4\"}\n"));
+            assertAll(
+                    () -> assertEquals(2, rectangles.size()),
+                    () -> assertArrayEquals(new int[]{48, 192, 351, 207}, rectangles.get(0)),
+                    () -> assertArrayEquals(new int[]{1, 2, 3, 4}, rectangles.get(1))
+            );
+        }
+
+        @Test
+        @DisplayName("from a stream, ending with a line break")
+        void fromStream() throws IOException {
+            byte[] bytes = "{\"0 292 399 307\"}\r\nignored".getBytes(StandardCharsets.US_ASCII);
+            List<int[]> rectangles = parse(RectangleInputParser.of(new ByteArrayInputStream(bytes)));
+            assertArrayEquals(new int[]{0, 292, 399, 307}, rectangles.get(0));
+        }
+
+        @Test
+        @DisplayName("from a file mapped in several chunks")
+        void fromFile() throws IOException {
+            Path file = Files.createTempFile("barren", ".txt");
+            try {
+                Files.write(file, "{\"48 192 351 207\",\"48 392 351 407\"}\n".getBytes(StandardCharsets.US_ASCII));
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    List<int[]> rectangles = parse(RectangleInputParser.of(channel, 5));
+                    assertAll(
+                            () -> assertEquals(2, rectangles.size()),
+                            () -> assertArrayEquals(new int[]{48, 192, 351, 207}, rectangles.get(0)),
+                            () -> assertArrayEquals(new int[]{48, 392, 351, 407}, rectangles.get(1))
+                    );
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        @Test
+        @DisplayName("trailing space and trailing comma")
+        void trailing() throws IOException {
+            List<int[]> rectangles = parse(RectangleInputParser.of("{\"0 1 2 3 \",}"));
+            assertArrayEquals(new int[]{0, 1, 2, 3}, rectangles.get(0));
+        }
+    }
+
+    @DisplayName("invalid input")
+    static class Invalid {
+
+        @Test
+        @DisplayName("empty")
+        void empty() {
+            assertEquals("expected '{' at position 0 but reached the end of the input", errorFor(""));
+        }
+
+        @Test
+        @DisplayName("extra number")
+        void extraNumber() {
+            assertEquals("expected '\"' at position 34 but found '5'",
+                    errorFor("{\"48 192 351 207\",\"48 392 351 407 512\"}"));
+        }
+
+        @Test
+        @DisplayName("missing number")
+        void missingNumber() {
+            assertEquals("expected a digit at position 8 but found '\"'", errorFor("{\"1 2 3 \"}"));
+        }
+
+        @Test
+        @DisplayName("missing comma")
+        void missingComma() {
+            assertEquals("expected ',' or '}' at position 10 but found '\"'", errorFor("{\"1 2 3 4\"\"5 6 7 8\"}"));
+        }
+
+        @Test
+        @DisplayName("missing closing brace")
+        void missingBrace() {
+            assertEquals("expected ',' or '}' at position 10 but reached the end of the input",
+                    errorFor("{\"1 2 3 4\""));
+        }
+
+        @Test
+        @DisplayName("text after the closing brace")
+        void afterBrace() {
+            assertEquals("expected the end of the line at position 11 but found ' '", errorFor("{\"1 2 3 4\"} "));
+        }
+
+        @Test
+        @DisplayName("number too large")
+        void tooLarge() {
+            assertEquals("number at position 2 is too large", errorFor("{\"2147483648 0 0 0\"}"));
+        }
+
+        @Test
+        @DisplayName("corners in the wrong order")
+        void wrongOrder() {
+            assertEquals("upper right corner is below the lower left corner in rectangle at position 11",
+                    errorFor("{\"1 2 3 4\",\"1 5 3 4\"}"));
+        }
+
+        @Test
+        @DisplayName("position counted across buffers")
+        void acrossBuffers() {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                    () -> parse(byteAtATime("{\"1 2 3 4\",\"1 x 3 4\"}")));
+            assertEquals("expected a digit at position 14 but found 'x'", exception.getMessage());
+        }
+    }
+
+    @DisplayName("binary input")
+    static class Binary {
+
+        /**
+         * Creates a parser of the specified bytes, each given as an int so that values above 127 read naturally.
+         */
+        private static RectangleInputParser of(int... values) {
+            byte[] bytes = new byte[values.length];
+            for (int i = 0; i < values.length; i++) {
+                bytes[i] = (byte) values[i];
+            }
+            return RectangleInputParser.of(new ByteArrayInputStream(bytes));
+        }
+
+        private static String errorFor(int... values) {
+            return assertThrows(IllegalArgumentException.class, () -> parse(of(values))).getMessage();
+        }
+
+        @Test
+        @DisplayName("recognized by its magic bytes")
+        void recognized() throws IOException {
+            List<int[]> rectangles = parse(of(0x89, 'B', 'L', '1', 2, 6, 8, 2, 2, 1, 3, 0, 0));
+            assertAll(
+                    () -> assertEquals(2, rectangles.size()),
+                    () -> assertArrayEquals(new int[]{3, 4, 5, 6}, rectangles.get(0)),
+                    () -> assertArrayEquals(new int[]{2, 2, 2, 2}, rectangles.get(1))
+            );
+        }
+
+        @Test
+        @DisplayName("unknown version")
+        void unknownVersion() {
+            assertEquals("unknown binary format at position 3", errorFor(0x89, 'B', 'L', '2', 0));
+        }
+
+        @Test
+        @DisplayName("fewer rectangles than counted")
+        void truncated() {
+            assertEquals("expected the rest of a number at position 9 but reached the end of the input",
+                    errorFor(0x89, 'B', 'L', '1', 2, 6, 8, 2, 2));
+        }
+
+        @Test
+        @DisplayName("bytes after the last rectangle")
+        void trailing() {
+            assertEquals("expected the end of the input at position 5 after 0 rectangles",
+                    errorFor(0x89, 'B', 'L', '1', 0, 0));
+        }
+
+        @Test
+        @DisplayName("number too large")
+        void tooLarge() {
+            assertEquals("number at position 4 is too large",
+                    errorFor(0x89, 'B', 'L', '1', 0xFF, 0xFF, 0xFF, 0xFF, 0x7F));
+        }
+
+        @Test
+        @DisplayName("coordinate out of range")
+        void outOfRange() {
+            assertEquals("rectangle at position 5 is out of range",
+                    errorFor(0x89, 'B', 'L', '1', 1, 1, 0, 0, 0));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.murasaki.jobs.barren;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("result cache")
+class ResultCacheTest {
+
+    private static final String EXAMPLE_2_SHUFFLED =
+            "{\"260 52 275 547\",\"48 392 351 407\",\"120 52 135 547\",\"48 192 351 207\",\"48 392 351 407\"}";
+
+    private static ResultCache cache(int capacity) throws IOException {
+        return new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, capacity, null);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static Path answerFile(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".answer")).findFirst()
+                    .orElseThrow(AssertionError::new);
+        }
+    }
+
+    @Test
+    @DisplayName("a repeated problem is a hit")
+    void hit() throws IOException {
+        ResultCache cache = cache(4);
+        assertAll(
+                () -> assertEquals("22816 192608", cache.solve(Examples.EXAMPLE_2)),
+                () -> assertEquals("22816 192608", cache.solve(Examples.EXAMPLE_2)),
+                () -> assertEquals(1, cache.hits()),
+                () -> assertEquals(1, cache.misses()),
+                () -> assertEquals(1, cache.size())
+        );
+    }
+
+    @Test
+    @DisplayName("order and duplicates of the rectangles do not matter")
+    void canonical() throws IOException {
+        ResultCache cache = cache(4);
+        cache.solve(Examples.EXAMPLE_2);
+        assertAll(
+                () -> assertEquals("22816 192608", cache.solve(EXAMPLE_2_SHUFFLED)),
+                () -> assertEquals(1, cache.hits())
+        );
+    }
+
+    @Test
+    @DisplayName("the least recently used answer is evicted")
+    void eviction() throws IOException {
+        ResultCache cache = cache(1);
+        cache.solve(Examples.EXAMPLE_2);
+        cache.solve("{\"0 292 399 307\"}");
+        assertAll(
+                () -> assertEquals("22816 192608", cache.solve(Examples.EXAMPLE_2)),
+                () -> assertEquals(0, cache.hits()),
+                () -> assertEquals(3, cache.misses()),
+                () -> assertEquals(1, cache.size())
+        );
+    }
+
+    @Test
+    @DisplayName("answers persisted to a directory survive a new cache")
+    void persisted() throws IOException {
+        Path directory = Files.createTempDirectory("barren");
+        try {
+            new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, 4, directory).solve(Examples.EXAMPLE_2);
+            ResultCache cache = new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, 4, directory);
+            assertAll(
+                    () -> assertEquals("22816 192608", cache.solve(EXAMPLE_2_SHUFFLED)),
+                    () -> assertEquals(1, cache.diskHits()),
+                    () -> assertEquals(0, cache.misses())
+            );
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    @DisplayName("a different field is not confused with the standard one")
+    void differentField() throws IOException {
+        Path directory = Files.createTempDirectory("barren");
+        try {
+            new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, 4, directory).solve(Examples.EXAMPLE_2);
+            ResultCache cache = new ResultCache(Engine.FRAGMENT, Main.parseField("800x600"), 4, directory);
+            cache.solve(Examples.EXAMPLE_2);
+            assertEquals(1, cache.misses());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    @DisplayName("a truncated answer file is a miss and is replaced")
+    void truncated() throws IOException {
+        Path directory = Files.createTempDirectory("barren");
+        try {
+            new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, 4, directory).solve(Examples.EXAMPLE_2);
+            Path file = answerFile(directory);
+            Files.write(file, Arrays.copyOf(Files.readAllBytes(file), 20));
+            ResultCache cache = new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, 4, directory);
+            assertAll(
+                    () -> assertEquals("22816 192608", cache.solve(Examples.EXAMPLE_2)),
+                    () -> assertEquals(1, cache.misses())
+            );
+            ResultCache again = new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, 4, directory);
+            assertAll(
+                    () -> assertEquals("22816 192608", again.solve(Examples.EXAMPLE_2)),
+                    () -> assertEquals(1, again.diskHits())
+            );
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    @DisplayName("an answer file with an impossible length is a miss")
+    void badLength() throws IOException {
+        Path directory = Files.createTempDirectory("barren");
+        try {
+            new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, 4, directory).solve(Examples.EXAMPLE_2);
+            Path file = answerFile(directory);
+            for (int length : new int[]{-1, Integer.MAX_VALUE}) {
+                try (RandomAccessFile answer = new RandomAccessFile(file.toFile(), "rw")) {
+                    answer.seek(answer.length() - "22816 192608".length() - 4);
+                    answer.writeInt(length);
+                }
+                ResultCache cache = new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, 4, directory);
+                assertAll(
+                        () -> assertEquals("22816 192608", cache.solve(Examples.EXAMPLE_2)),
+                        () -> assertEquals(1, cache.misses())
+                );
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    @DisplayName("an answer that cannot be persisted is still answered")
+    void failedWrite() throws IOException {
+        Path directory = Files.createTempDirectory("barren");
+        ResultCache cache = new ResultCache(Engine.FRAGMENT, Main.STANDARD_FIELD, 4, directory);
+        Files.delete(directory);
+        assertAll(
+                () -> assertEquals("22816 192608", cache.solve(Examples.EXAMPLE_2)),
+                () -> assertEquals("22816 192608", cache.solve(Examples.EXAMPLE_2)),
+                () -> assertEquals(1, cache.misses()),
+                () -> assertEquals(1, cache.hits())
+        );
+    }
+
+    @Test
+    @DisplayName("bad input")
+    void badInput() throws IOException {
+        ResultCache cache = cache(4);
+        assertThrows(IllegalArgumentException.class, () -> cache.solve("{\"1 2 3\"}"));
+    }
+}
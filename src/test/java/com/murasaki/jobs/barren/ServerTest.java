@@ -0,0 +1,180 @@
+package com.murasaki.jobs.barren;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("server")
+class ServerTest {
+
+    private Server server;
+    private Thread serving;
+
+    @BeforeEach
+    void start() throws Exception {
+        start(new Server(0, input -> Main.process(input), 2, 64));
+    }
+
+    private void start(Server started) throws Exception {
+        if (server != null) {
+            stop();
+        }
+        server = started;
+        serving = new Thread(() -> {
+            try {
+                started.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        serving.start();
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        server.close();
+        serving.join(5000);
+    }
+
+    private Socket connect() throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), server.port());
+    }
+
+    @Test
+    @DisplayName("answers each line in order")
+    void linesInOrder() throws IOException {
+        try (Socket socket = connect()) {
+            OutputStream output = socket.getOutputStream();
+            output.write((Examples.EXAMPLE_1 + "\n" + Examples.EXAMPLE_2 + "\n").getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            assertEquals("116800 116800", reader.readLine());
+            assertEquals("22816 192608", reader.readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("invalid input is answered with an error and the connection stays open")
+    void invalidInput() throws IOException {
+        try (Socket socket = connect()) {
+            OutputStream output = socket.getOutputStream();
+            output.write(("{\"0 292 399\"}\n" + Examples.EXAMPLE_2 + "\n").getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            assertTrue(reader.readLine().startsWith("error: expected ' ' at position 11"));
+            assertEquals("22816 192608", reader.readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("more clients than queries in flight are all answered")
+    void manyClients() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> answers = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                answers.add(clients.submit(() -> {
+                    try (Socket socket = connect()) {
+                        socket.getOutputStream().write((Examples.EXAMPLE_2 + "\n").getBytes(StandardCharsets.US_ASCII));
+                        return new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                StandardCharsets.US_ASCII)).readLine();
+                    }
+                }));
+            }
+            for (Future<String> answer : answers) {
+                assertEquals("22816 192608", answer.get());
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("a failure while solving is answered with an error and the connection stays open")
+    void solverFailure() throws Exception {
+        start(new Server(0, input -> {
+            if (input.isEmpty()) {
+                throw new UncheckedIOException(new IOException("cache unreadable"));
+            }
+            return Main.process(input);
+        }, 2, 64));
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(("\n" + Examples.EXAMPLE_2 + "\n").getBytes(StandardCharsets.US_ASCII));
+            BufferedReader reader = reader(socket);
+            assertEquals("error: java.io.IOException: cache unreadable", reader.readLine());
+            assertEquals("22816 192608", reader.readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("a line longer than the limit is answered with an error and the next line still is answered")
+    void lineTooLong() throws Exception {
+        start(new Server(0, input -> Main.process(input), 2, 64, 100));
+        try (Socket socket = connect()) {
+            StringBuilder lines = new StringBuilder();
+            for (int i = 0; i < 10000; i++) {
+                lines.append('x');
+            }
+            lines.append("\r\n").append(Examples.EXAMPLE_2).append("\r\n");
+            socket.getOutputStream().write(lines.toString().getBytes(StandardCharsets.US_ASCII));
+            BufferedReader reader = reader(socket);
+            assertEquals("error: line is longer than 100 characters", reader.readLine());
+            assertEquals("22816 192608", reader.readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("clients beyond the connection limit wait until a connection closes")
+    void connectionLimit() throws Exception {
+        start(new Server(0, input -> Main.process(input), 2, 1));
+        Socket first = connect();
+        try (Socket second = connect()) {
+            try (Socket open = first) {
+                open.getOutputStream().write((Examples.EXAMPLE_2 + "\n").getBytes(StandardCharsets.US_ASCII));
+                assertEquals("22816 192608", reader(open).readLine());
+                second.getOutputStream().write((Examples.EXAMPLE_2 + "\n").getBytes(StandardCharsets.US_ASCII));
+                second.setSoTimeout(300);
+                assertThrows(SocketTimeoutException.class, () -> second.getInputStream().read());
+            }
+            second.setSoTimeout(5000);
+            assertEquals("22816 192608", reader(second).readLine());
+        }
+    }
+
+    @Test
+    @DisplayName("closing the server closes idle connections")
+    void closeIdle() throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write((Examples.EXAMPLE_2 + "\n").getBytes(StandardCharsets.US_ASCII));
+            BufferedReader reader = reader(socket);
+            assertEquals("22816 192608", reader.readLine());
+            server.close();
+            socket.setSoTimeout(5000);
+            assertNull(reader.readLine());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("areas")
+class AreasTest {
+
+    private static String written(long... areas) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Areas.writeSorted(areas, output);
+        return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    @DisplayName("sorted output")
+    static class Sorted {
+
+        @Test
+        @DisplayName("ascending and space separated")
+        void ascending() throws IOException {
+            assertEquals("0 7 10 192608", written(192608, 10, 0, 7));
+        }
+
+        @Test
+        @DisplayName("no areas")
+        void empty() throws IOException {
+            assertEquals("", written());
+        }
+
+        @Test
+        @DisplayName("largest possible area")
+        void largest() throws IOException {
+            assertEquals("1 9223372036854775807", written(Long.MAX_VALUE, 1));
+        }
+
+        @Test
+        @DisplayName("written and listed the same across many buffers")
+        void manyBuffers() throws IOException {
+            Random random = new Random(3);
+            long[] areas = new long[100_000];
+            for (int i = 0; i < areas.length; i++) {
+                areas[i] = random.nextInt(1_000_000);
+            }
+            assertEquals(Areas.sortedString(areas.clone()), written(areas));
+        }
+    }
+
+    @DisplayName("largest areas")
+    static class Largest {
+
+        @Test
+        @DisplayName("same as the end of a full sort")
+        void matchesSort() {
+            Random random = new Random(5);
+            long[] areas = new long[10_000];
+            for (int i = 0; i < areas.length; i++) {
+                areas[i] = random.nextInt(500);
+            }
+            long[] sorted = areas.clone();
+            Arrays.sort(sorted);
+            for (int count : new int[]{1, 2, 17, 1000}) {
+                assertArrayEquals(Arrays.copyOfRange(sorted, sorted.length - count, sorted.length),
+                        Areas.largest(areas, count));
+            }
+        }
+
+        @Test
+        @DisplayName("fewer areas than asked for")
+        void fewer() {
+            assertArrayEquals(new long[]{1, 2, 3}, Areas.largest(new long[]{3, 1, 2}, 10));
+        }
+
+        @Test
+        @DisplayName("none asked for")
+        void none() {
+            assertArrayEquals(new long[0], Areas.largest(new long[]{3, 1, 2}, 0));
+        }
+
+        @Test
+        @DisplayName("the areas are not changed")
+        void unchanged() {
+            long[] areas = {5, 3, 9, 1};
+            Areas.largest(areas, 2);
+            assertArrayEquals(new long[]{5, 3, 9, 1}, areas);
+        }
+
+        @Test
+        @DisplayName("negative count")
+        void negative() {
+            assertThrows(IllegalArgumentException.class, () -> Areas.largest(new long[]{1}, -1));
+        }
+
+        @Test
+        @DisplayName("from a field")
+        void fromField() {
+            RectangleField field = new RectangleField(new Rectangle(new Point(0, 0), new Point(399, 599)));
+            field.remove(new Rectangle(new Point(0, 292), new Point(399, 307)));
+            field.remove(new Rectangle(new Point(0, 100), new Point(399, 100)));
+            assertArrayEquals(new long[]{116800}, field.largestAreas(1));
+        }
+    }
+}
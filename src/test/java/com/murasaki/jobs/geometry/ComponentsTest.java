@@ -0,0 +1,93 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("components")
+class ComponentsTest {
+
+    @DisplayName("labels")
+    static class Labels {
+
+        @Test
+        @DisplayName("side by side")
+        void sideBySide() {
+            List<Rectangle> rectangles = Arrays.asList(
+                    new Rectangle(new Point(0, 0), new Point(4, 4)),
+                    new Rectangle(new Point(5, 2), new Point(9, 8)));
+            int[] labels = Components.of(rectangles).labels();
+            assertEquals(labels[0], labels[1]);
+        }
+
+        @Test
+        @DisplayName("touching part of an edge away from the corners")
+        void partialEdge() {
+            List<Rectangle> rectangles = Arrays.asList(
+                    new Rectangle(new Point(0, 0), new Point(9, 9)),
+                    new Rectangle(new Point(3, 10), new Point(5, 12)));
+            int[] labels = Components.of(rectangles).labels();
+            assertEquals(labels[0], labels[1]);
+        }
+
+        @Test
+        @DisplayName("touching only at a corner")
+        void diagonal() {
+            List<Rectangle> rectangles = Arrays.asList(
+                    new Rectangle(new Point(0, 0), new Point(4, 4)),
+                    new Rectangle(new Point(5, 5), new Point(9, 9)));
+            int[] labels = Components.of(rectangles).labels();
+            assertNotEquals(labels[0], labels[1]);
+        }
+
+        @Test
+        @DisplayName("separated by a gap")
+        void gap() {
+            List<Rectangle> rectangles = Arrays.asList(
+                    new Rectangle(new Point(0, 0), new Point(4, 4)),
+                    new Rectangle(new Point(6, 0), new Point(9, 4)));
+            int[] labels = Components.of(rectangles).labels();
+            assertNotEquals(labels[0], labels[1]);
+        }
+
+        @Test
+        @DisplayName("connected through a chain")
+        void chain() {
+            List<Rectangle> rectangles = Arrays.asList(
+                    new Rectangle(new Point(0, 0), new Point(0, 0)),
+                    new Rectangle(new Point(20, 0), new Point(20, 0)),
+                    new Rectangle(new Point(1, 0), new Point(19, 0)));
+            int[] labels = Components.of(rectangles).labels();
+            assertAll(
+                    () -> assertEquals(0, labels[0]),
+                    () -> assertEquals(0, labels[1]),
+                    () -> assertEquals(0, labels[2])
+            );
+        }
+    }
+
+    @DisplayName("areas")
+    static class Areas {
+
+        @Test
+        @DisplayName("summed per component")
+        void summed() {
+            List<Rectangle> rectangles = Arrays.asList(
+                    new Rectangle(new Point(0, 0), new Point(1, 1)),
+                    new Rectangle(new Point(10, 10), new Point(12, 12)),
+                    new Rectangle(new Point(2, 0), new Point(2, 0)));
+            long[] areas = Components.of(rectangles).areas();
+            assertArrayEquals(new long[]{5, 9}, areas);
+        }
+
+        @Test
+        @DisplayName("no rectangles")
+        void empty() {
+            assertEquals(0, Components.of(Arrays.asList()).areas().length);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("compressed field")
+class CompressedFieldTest {
+
+    @DisplayName("sorted areas")
+    static class SortedAreas {
+
+        Rectangle startingGreen = new Rectangle(new Point(0, 0), new Point(399, 599));
+
+        @Test
+        @DisplayName("example 1")
+        void example1() {
+            CompressedField field = new CompressedField(startingGreen);
+            field.remove(new Rectangle(new Point(0, 292), new Point(399, 307)));
+            assertEquals("116800 116800", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("example 2")
+        void example2() {
+            CompressedField field = new CompressedField(startingGreen);
+            field.remove(new Rectangle(new Point(48, 192), new Point(351, 207)));
+            field.remove(new Rectangle(new Point(48, 392), new Point(351, 407)));
+            field.remove(new Rectangle(new Point(120, 52), new Point(135, 547)));
+            field.remove(new Rectangle(new Point(260, 52), new Point(275, 547)));
+            assertEquals("22816 192608", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("nothing removed")
+        void nothingRemoved() {
+            assertEquals("240000", new CompressedField(startingGreen).sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("everything removed")
+        void everythingRemoved() {
+            CompressedField field = new CompressedField(startingGreen);
+            field.remove(new Rectangle(new Point(-5, -5), new Point(500, 700)));
+            assertEquals("", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("squares touching only at a corner are not connected")
+        void corner() {
+            CompressedField field = new CompressedField(new Rectangle(new Point(0, 0), new Point(1, 1)));
+            field.remove(new Rectangle(new Point(0, 0), new Point(0, 0)));
+            field.remove(new Rectangle(new Point(1, 1), new Point(1, 1)));
+            assertEquals("1 1", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("field at the largest coordinates")
+        void largestCoordinates() {
+            int max = Integer.MAX_VALUE;
+            CompressedField field = new CompressedField(
+                    new Rectangle(new Point(max - 2, max - 2), new Point(max, max)));
+            field.remove(new Rectangle(new Point(max - 1, max - 2), new Point(max - 1, max)));
+            assertEquals("3 3", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("areas too large for an int")
+        void largeAreas() {
+            CompressedField field = new CompressedField(
+                    new Rectangle(new Point(0, 0), new Point(Integer.MAX_VALUE - 1, Integer.MAX_VALUE - 1)));
+            field.remove(new Rectangle(new Point(1_000_000, 0), new Point(1_000_000, Integer.MAX_VALUE)));
+            assertEquals("2147483647000000 4609538528337936962", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("same areas as the fragment field")
+        void sameAsFragmentField() {
+            Random random = new Random(14);
+            for (int run = 0; run < 50; run++) {
+                Rectangle green = new Rectangle(new Point(0, 0), new Point(59, 79));
+                List<Rectangle> barren = new ArrayList<>();
+                for (int i = 0; i < 25; i++) {
+                    int x = random.nextInt(70) - 5;
+                    int y = random.nextInt(90) - 5;
+                    barren.add(new Rectangle(new Point(x, y),
+                            new Point(x + random.nextInt(30), y + random.nextInt(6))));
+                }
+                CompressedField sweep = new CompressedField(green);
+                RectangleField fragments = new RectangleField(green);
+                sweep.removeAll(barren);
+                fragments.removeAll(barren);
+                assertEquals(fragments.sortedAreasAsStrings(), sweep.sortedAreasAsStrings());
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("concurrent field")
+class ConcurrentFieldTest {
+
+    @DisplayName("sorted areas")
+    static class SortedAreas {
+
+        @Test
+        @DisplayName("components crossing stripe borders are stitched")
+        void stitched() {
+            ConcurrentField field = new ConcurrentField(Fields.STANDARD, 4);
+            field.remove(new Rectangle(new Point(48, 192), new Point(351, 207)));
+            field.remove(new Rectangle(new Point(48, 392), new Point(351, 407)));
+            field.remove(new Rectangle(new Point(120, 52), new Point(135, 547)));
+            field.remove(new Rectangle(new Point(260, 52), new Point(275, 547)));
+            assertEquals("22816 192608", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("more stripes than columns")
+        void moreStripesThanColumns() {
+            ConcurrentField field = new ConcurrentField(new Rectangle(new Point(0, 0), new Point(2, 0)), 8);
+            field.remove(new Rectangle(new Point(1, 0), new Point(1, 0)));
+            assertEquals("1 1", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("rectangles reaching outside the field")
+        void outside() {
+            ConcurrentField field = new ConcurrentField(new Rectangle(new Point(10, 10), new Point(19, 19)), 3);
+            field.remove(new Rectangle(new Point(0, 0), new Point(12, 30)));
+            field.remove(new Rectangle(new Point(30, 0), new Point(40, 40)));
+            assertEquals("70", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("same areas as the fragment field")
+        void sameAsFragmentField() {
+            Random random = new Random(13);
+            for (int run = 0; run < 50; run++) {
+                Rectangle green = new Rectangle(new Point(0, 0), new Point(59, 79));
+                List<Rectangle> barren = Fields.random(random, 25, 60, 80);
+                ConcurrentField concurrent = new ConcurrentField(green, 1 + run % 7);
+                RectangleField fragments = new RectangleField(green);
+                concurrent.removeAll(barren);
+                fragments.removeAll(barren);
+                assertEquals(fragments.sortedAreasAsStrings(), concurrent.sortedAreasAsStrings());
+            }
+        }
+    }
+
+    @DisplayName("many threads")
+    static class ManyThreads {
+
+        @Test
+        @DisplayName("same areas as removing on one thread")
+        void sameAsOneThread() throws Exception {
+            List<Rectangle> barren = Fields.random(new Random(17), 4000, 400, 600);
+            RectangleField expected = new RectangleField(Fields.STANDARD);
+            expected.removeAll(barren);
+            ConcurrentField field = new ConcurrentField(Fields.STANDARD, 16);
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int thread = 0; thread < 4; thread++) {
+                    List<Rectangle> part = barren.subList(thread * 1000, (thread + 1) * 1000);
+                    tasks.add(pool.submit(() -> field.removeAll(part)));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            } finally {
+                pool.shutdown();
+            }
+            assertEquals(expected.sortedAreasAsStrings(), field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("reads never see part of a removal")
+        void consistentReads() throws Exception {
+            ConcurrentField field = new ConcurrentField(Fields.STANDARD, 16);
+            AtomicBoolean done = new AtomicBoolean();
+            ExecutorService pool = Executors.newSingleThreadExecutor();
+            try {
+                // every removal cuts right across the field, so it adds one component and takes away a row of area
+                Future<?> writer = pool.submit(() -> {
+                    for (int y = 1; y < 598; y += 2) {
+                        field.remove(new Rectangle(new Point(0, y), new Point(399, y)));
+                    }
+                    done.set(true);
+                });
+                while (!done.get()) {
+                    assertWholeCuts(field.areas());
+                }
+                writer.get();
+            } finally {
+                pool.shutdown();
+            }
+            long[] areas = field.areas();
+            assertWholeCuts(areas);
+            assertEquals(300, areas.length);
+        }
+
+        private static void assertWholeCuts(long[] areas) {
+            long total = 0;
+            for (long area : areas) {
+                total += area;
+            }
+            int cuts = areas.length - 1;
+            assertEquals(240000 - 400L * cuts, total, "areas " + areas.length);
+        }
+    }
+}
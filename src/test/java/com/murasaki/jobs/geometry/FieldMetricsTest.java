@@ -0,0 +1,88 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+@DisplayName("field metrics")
+class FieldMetricsTest {
+
+    @Test
+    @DisplayName("removals are counted per run")
+    void removals() {
+        FieldMetrics metrics = new FieldMetrics();
+        metrics.removed(3, 1, 8, 5, 100);
+        metrics.removed(0, 2, 6, 4, 50);
+        assertAll(
+                () -> assertEquals(2, metrics.getRemovals()),
+                () -> assertEquals(3, metrics.getFragmentsCreated()),
+                () -> assertEquals(3, metrics.getFragmentsDestroyed()),
+                () -> assertEquals(8, metrics.getPeakFragments()),
+                () -> assertEquals(9, metrics.getIntersectionTests()),
+                () -> assertEquals(150, metrics.getRemoveNanos())
+        );
+    }
+
+    @Test
+    @DisplayName("every run adds to the cumulative counters")
+    void cumulative() {
+        long before = FieldMetrics.cumulative().getAdjacencyComparisons();
+        new FieldMetrics().labelled(7, 10);
+        new FieldMetrics().labelled(5, 10);
+        assertTrue(FieldMetrics.cumulative().getAdjacencyComparisons() >= before + 12);
+    }
+
+    @Test
+    @DisplayName("reset")
+    void reset() {
+        FieldMetrics metrics = new FieldMetrics();
+        metrics.coalesced(4, 20);
+        metrics.reset();
+        assertAll(
+                () -> assertEquals(0, metrics.getFragmentsCoalesced()),
+                () -> assertEquals(0, metrics.getCoalesceNanos())
+        );
+    }
+
+    @Test
+    @DisplayName("a field records its removals")
+    void field() {
+        RectangleField field = RectangleField.measured(new Rectangle(new Point(0, 0), new Point(9, 9)));
+        field.remove(new Rectangle(new Point(0, 0), new Point(9, 4))); // one fragment becomes one
+        field.remove(new Rectangle(new Point(0, 5), new Point(4, 9))); // and again
+        field.remove(new Rectangle(new Point(7, 7), new Point(7, 7))); // a hole cuts the last one into eight
+        field.remove(new Rectangle(new Point(20, 20), new Point(30, 30))); // outside, nothing tested
+        field.remove(new Rectangle(new Point(5, 5), new Point(9, 9))); // all eight go
+        FieldMetrics metrics = field.metrics();
+        assertAll(
+                () -> assertEquals(5, metrics.getRemovals()),
+                () -> assertEquals(10, metrics.getFragmentsCreated()),
+                () -> assertEquals(11, metrics.getFragmentsDestroyed()),
+                () -> assertEquals(8, metrics.getPeakFragments()),
+                () -> assertEquals(11, metrics.getIntersectionTests()),
+                () -> assertEquals(0, field.fragmentCount())
+        );
+    }
+
+    @Test
+    @DisplayName("a field records nothing while metrics are disabled")
+    void disabled() {
+        assumeFalse(FieldMetrics.ENABLED);
+        RectangleField field = new RectangleField(new Rectangle(new Point(0, 0), new Point(9, 9)));
+        field.remove(new Rectangle(new Point(7, 7), new Point(7, 7)));
+        assertEquals(0, field.metrics().getRemovals());
+    }
+
+    @Test
+    @DisplayName("cumulative counters are published over JMX")
+    void mbean() throws Exception {
+        FieldMetrics.registerMBean();
+        FieldMetrics.registerMBean();
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(FieldMetrics.OBJECT_NAME)));
+    }
+}
@@ -0,0 +1,155 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("field queries")
+class FieldQueriesTest {
+
+    private static Rectangle rectangle(int left, int bottom, int right, int top) {
+        return new Rectangle(new Point(left, bottom), new Point(right, top));
+    }
+
+    @DisplayName("green area")
+    static class GreenArea {
+
+        @Test
+        @DisplayName("whole field")
+        void wholeField() {
+            assertEquals(215424, Fields.example().queries().greenArea(Fields.STANDARD));
+        }
+
+        @Test
+        @DisplayName("inside a barren rectangle")
+        void barren() {
+            assertEquals(0, Fields.example().queries().greenArea(rectangle(50, 195, 340, 205)));
+        }
+
+        @Test
+        @DisplayName("region cutting through cells")
+        void partialCells() {
+            // columns 100..139 of rows 190..209 less the 16 barren columns 120..135 and the barren rows 192..207
+            FieldQueries queries = Fields.example().queries();
+            assertEquals(40 * 20 - 16 * 20 - 24 * 16, queries.greenArea(rectangle(100, 190, 139, 209)));
+        }
+
+        @Test
+        @DisplayName("region reaching outside the field")
+        void outside() {
+            RectangleField field = new RectangleField(rectangle(10, 10, 19, 19));
+            assertEquals(100, field.queries().greenArea(rectangle(-100, -100, 100, 100)));
+            assertEquals(0, field.queries().greenArea(rectangle(20, 0, 30, 30)));
+            assertEquals(5, field.queries().greenArea(rectangle(0, 15, 10, 19)));
+        }
+
+        @Test
+        @DisplayName("same as counting squares")
+        void sameAsCounting() {
+            Random random = new Random(23);
+            for (int run = 0; run < 20; run++) {
+                RectangleField field = new RectangleField(rectangle(0, 0, 59, 79));
+                boolean[][] barren = new boolean[60][80];
+                for (int i = 0; i < 30; i++) {
+                    int x = random.nextInt(60);
+                    int y = random.nextInt(80);
+                    int right = Math.min(59, x + random.nextInt(20));
+                    int top = Math.min(79, y + random.nextInt(10));
+                    field.remove(rectangle(x, y, right, top));
+                    for (int column = x; column <= right; column++) {
+                        for (int row = y; row <= top; row++) {
+                            barren[column][row] = true;
+                        }
+                    }
+                }
+                FieldQueries queries = field.queries();
+                for (int query = 0; query < 200; query++) {
+                    int x = random.nextInt(70) - 5;
+                    int y = random.nextInt(90) - 5;
+                    Rectangle region = rectangle(x, y, x + random.nextInt(40), y + random.nextInt(40));
+                    long expected = 0;
+                    for (int column = Math.max(0, x); column <= Math.min(59, region.getUpperRight().getX()); column++) {
+                        for (int row = Math.max(0, y); row <= Math.min(79, region.getUpperRight().getY()); row++) {
+                            expected += barren[column][row] ? 0 : 1;
+                        }
+                    }
+                    assertEquals(expected, queries.greenArea(region), region.toString());
+                }
+            }
+        }
+    }
+
+    @DisplayName("components")
+    static class PointQueries {
+
+        @Test
+        @DisplayName("area of the component holding a point")
+        void componentArea() {
+            FieldQueries queries = Fields.example().queries();
+            assertEquals(2, queries.componentCount());
+            assertEquals(22816, queries.componentAreaAt(new Point(200, 300)));
+            assertEquals(192608, queries.componentAreaAt(new Point(0, 0)));
+            assertEquals(192608, queries.componentAreaAt(new Point(399, 599)));
+        }
+
+        @Test
+        @DisplayName("points in the same component share it")
+        void sameComponent() {
+            FieldQueries queries = Fields.example().queries();
+            int inner = queries.componentAt(new Point(137, 209));
+            assertEquals(inner, queries.componentAt(new Point(258, 390)));
+            assertNotEquals(inner, queries.componentAt(new Point(5, 5)));
+            assertEquals(22816, queries.componentArea(inner));
+        }
+
+        @Test
+        @DisplayName("barren points and points outside the field")
+        void noComponent() {
+            FieldQueries queries = Fields.example().queries();
+            assertEquals(-1, queries.componentAt(new Point(120, 300)));
+            assertEquals(-1, queries.componentAt(new Point(400, 0)));
+            assertEquals(-1, queries.componentAt(new Point(0, -1)));
+            assertEquals(0, queries.componentAreaAt(new Point(-1, -1)));
+            assertThrows(IndexOutOfBoundsException.class, () -> queries.componentArea(2));
+        }
+
+        @Test
+        @DisplayName("everything removed")
+        void everythingRemoved() {
+            RectangleField field = new RectangleField(Fields.STANDARD);
+            field.remove(rectangle(-5, -5, 500, 700));
+            FieldQueries queries = field.queries();
+            assertEquals(0, queries.componentCount());
+            assertEquals(-1, queries.componentAt(new Point(0, 0)));
+            assertEquals(0, queries.greenArea(Fields.STANDARD));
+        }
+    }
+
+    @DisplayName("rebuilding")
+    static class Rebuilding {
+
+        @Test
+        @DisplayName("kept while the field does not change")
+        void kept() {
+            RectangleField field = Fields.example();
+            FieldQueries queries = field.queries();
+            field.remove(rectangle(500, 500, 600, 600));
+            assertSame(queries, field.queries());
+        }
+
+        @Test
+        @DisplayName("rebuilt after a removal")
+        void rebuilt() {
+            RectangleField field = Fields.example();
+            FieldQueries before = field.queries();
+            field.remove(rectangle(0, 292, 399, 307));
+            FieldQueries after = field.queries();
+            assertNotSame(before, after);
+            assertEquals(215424, before.greenArea(Fields.STANDARD));
+            assertEquals(4, after.componentCount());
+        }
+    }
+}
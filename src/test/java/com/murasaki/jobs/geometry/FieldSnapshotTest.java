@@ -0,0 +1,160 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("field snapshot")
+class FieldSnapshotTest {
+
+    private static RectangleField roundTrip(RectangleField field, boolean withComponents) throws IOException {
+        Path file = Files.createTempFile("field", ".snapshot");
+        try {
+            field.save(file, withComponents);
+            return RectangleField.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertRejected(byte[] snapshot, String message) throws IOException {
+        Path file = Files.createTempFile("field", ".snapshot");
+        try {
+            Files.write(file, snapshot);
+            IOException thrown = assertThrows(IOException.class, () -> RectangleField.load(file));
+            assertTrue(thrown.getMessage().contains(message), thrown.getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static byte[] ints(int... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        for (int value : values) {
+            data.writeInt(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    @DisplayName("saving and loading")
+    static class SavingAndLoading {
+
+        @Test
+        @DisplayName("the same fragments and areas")
+        void sameAreas() throws IOException {
+            RectangleField field = Fields.example();
+            RectangleField loaded = roundTrip(field, false);
+            assertEquals(field.fragmentCount(), loaded.fragmentCount());
+            assertEquals("22816 192608", loaded.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("with components")
+        void withComponents() throws IOException {
+            RectangleField loaded = roundTrip(Fields.example(), true);
+            assertEquals("22816 192608", loaded.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("components of a field that tracks them")
+        void trackedComponents() throws IOException {
+            RectangleField field = new RectangleField(Fields.STANDARD);
+            field.trackComponents();
+            field.removeAll(Fields.random(new Random(3), 200, 400, 600));
+            RectangleField loaded = roundTrip(field, true);
+            assertEquals(field.sortedAreasAsStrings(), loaded.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("removals carry on as they would have")
+        void carryOn() throws IOException {
+            Random random = new Random(29);
+            for (int run = 0; run < 10; run++) {
+                List<Rectangle> barren = Fields.random(random, 100, 400, 600);
+                RectangleField field = new RectangleField(Fields.STANDARD);
+                field.removeAll(barren.subList(0, 50));
+                RectangleField loaded = roundTrip(field, run % 2 == 0);
+                field.removeAll(barren.subList(50, 100));
+                loaded.removeAll(barren.subList(50, 100));
+                assertEquals(field.sortedAreasAsStrings(), loaded.sortedAreasAsStrings());
+            }
+        }
+
+        @Test
+        @DisplayName("everything removed")
+        void everythingRemoved() throws IOException {
+            RectangleField field = new RectangleField(Fields.STANDARD);
+            field.remove(new Rectangle(new Point(-5, -5), new Point(500, 700)));
+            RectangleField loaded = roundTrip(field, true);
+            assertEquals(0, loaded.fragmentCount());
+            assertEquals("", loaded.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("sixteen bytes a fragment, twenty with components")
+        void size() throws IOException {
+            RectangleField field = Fields.example();
+            Path file = Files.createTempFile("field", ".snapshot");
+            try {
+                field.save(file, false);
+                assertEquals(36 + 16 * field.fragmentCount(), Files.size(file));
+                field.save(file, true);
+                assertEquals(36 + 20 * field.fragmentCount(), Files.size(file));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @DisplayName("rejecting")
+    static class Rejecting {
+
+        @Test
+        @DisplayName("a file that is not a snapshot")
+        void notSnapshot() throws IOException {
+            assertRejected("{[\"1 2 3 4\"]}".getBytes("US-ASCII"), "not a field snapshot");
+        }
+
+        @Test
+        @DisplayName("a newer version")
+        void newerVersion() throws IOException {
+            assertRejected(ints(FieldSnapshot.MAGIC, FieldSnapshot.VERSION + 1, 0, 0, 0, 9, 9, 0, 0),
+                    "snapshot version 2 is not supported");
+        }
+
+        @Test
+        @DisplayName("unknown flags")
+        void unknownFlags() throws IOException {
+            assertRejected(ints(FieldSnapshot.MAGIC, 1, 4, 0, 0, 9, 9, 0, 0), "unknown snapshot flags");
+        }
+
+        @Test
+        @DisplayName("a truncated snapshot")
+        void truncated() throws IOException {
+            assertRejected(ints(FieldSnapshot.MAGIC, 1, 0, 0, 0, 9, 9, 1, 0, 0, 0, 9), "corrupt snapshot");
+        }
+
+        @Test
+        @DisplayName("a fragment outside the field")
+        void outside() throws IOException {
+            assertRejected(ints(FieldSnapshot.MAGIC, 1, 0, 0, 0, 9, 9, 1, 0, 0, 0, 10, 9), "out of bounds");
+        }
+
+        @Test
+        @DisplayName("a component label out of range")
+        void label() throws IOException {
+            assertRejected(ints(FieldSnapshot.MAGIC, 1, FieldSnapshot.COMPONENTS, 0, 0, 9, 9, 1, 1, 0, 0, 9, 9, 1),
+                    "out of range");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.murasaki.jobs.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fields and barren rectangles shared by the tests of the field engines.
+ */
+final class Fields {
+
+    /**
+     * The 400 by 600 field of the examples.
+     */
+    static final Rectangle STANDARD = new Rectangle(new Point(0, 0), new Point(399, 599));
+
+    private Fields() {
+    }
+
+    /**
+     * Creates the standard field with the barren rectangles of the second example removed, leaving an inner patch of
+     * 22816 squares and an outer one of 192608.
+     *
+     * @return the field of the second example
+     */
+    static RectangleField example() {
+        RectangleField field = new RectangleField(STANDARD);
+        field.remove(new Rectangle(new Point(48, 192), new Point(351, 207)));
+        field.remove(new Rectangle(new Point(48, 392), new Point(351, 407)));
+        field.remove(new Rectangle(new Point(120, 52), new Point(135, 547)));
+        field.remove(new Rectangle(new Point(260, 52), new Point(275, 547)));
+        return field;
+    }
+
+    /**
+     * Generates barren rectangles with their lower left corners spread over a field, each up to half its width and a
+     * tenth of its height in size, so that some of them reach past its edges.
+     *
+     * @param random source of the rectangles
+     * @param count  number of rectangles
+     * @param width  width of the field, starting at the origin
+     * @param height height of the field, starting at the origin
+     * @return the rectangles
+     */
+    static List<Rectangle> random(Random random, int count, int width, int height) {
+        List<Rectangle> barren = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            barren.add(new Rectangle(new Point(x, y),
+                    new Point(x + random.nextInt(width / 2), y + random.nextInt(height / 10))));
+        }
+        return barren;
+    }
+}
@@ -0,0 +1,171 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("fragment store")
+class FragmentStoreTest {
+
+    @DisplayName("slots")
+    static class Slots {
+
+        @Test
+        @DisplayName("coordinates are kept per slot")
+        void coordinates() {
+            FragmentStore fragments = new FragmentStore();
+            int slot = fragments.add(1, 2, 3, 4);
+            assertAll(
+                    () -> assertEquals(1, fragments.left(slot)),
+                    () -> assertEquals(2, fragments.bottom(slot)),
+                    () -> assertEquals(3, fragments.right(slot)),
+                    () -> assertEquals(4, fragments.top(slot)),
+                    () -> assertEquals(new Rectangle(new Point(1, 2), new Point(3, 4)), fragments.rectangle(slot))
+            );
+        }
+
+        @Test
+        @DisplayName("freed slots are reused")
+        void reuse() {
+            FragmentStore fragments = new FragmentStore();
+            fragments.add(0, 0, 0, 0);
+            int freed = fragments.add(1, 1, 1, 1);
+            fragments.free(freed);
+            int reused = fragments.add(2, 2, 2, 2);
+            assertAll(
+                    () -> assertEquals(freed, reused),
+                    () -> assertEquals(2, fragments.end()),
+                    () -> assertEquals(2, fragments.size())
+            );
+        }
+
+        @Test
+        @DisplayName("grows past the initial capacity")
+        void grows() {
+            FragmentStore fragments = new FragmentStore();
+            for (int i = 0; i < 100; i++) {
+                fragments.add(i, 0, i, 0);
+            }
+            assertAll(
+                    () -> assertEquals(100, fragments.size()),
+                    () -> assertEquals(99, fragments.left(99)),
+                    () -> assertTrue(fragments.isLive(99))
+            );
+        }
+    }
+
+    @DisplayName("area")
+    static class Area {
+
+        @Test
+        @DisplayName("total area of live fragments")
+        void totalArea() {
+            FragmentStore fragments = new FragmentStore();
+            fragments.add(0, 0, 5, 5);
+            int freed = fragments.add(10, 10, 10, 10);
+            fragments.add(20, 20, 21, 20);
+            fragments.free(freed);
+            assertEquals(38, fragments.totalArea());
+        }
+    }
+
+    @DisplayName("contains")
+    static class Contains {
+
+        @Test
+        @DisplayName("only live fragments with the same bounds")
+        void contains() {
+            FragmentStore fragments = new FragmentStore();
+            fragments.add(0, 0, 5, 5);
+            fragments.free(fragments.add(6, 6, 7, 7));
+            assertAll(
+                    () -> assertTrue(fragments.contains(new Rectangle(new Point(0, 0), new Point(5, 5)))),
+                    () -> assertFalse(fragments.contains(new Rectangle(new Point(0, 0), new Point(5, 4)))),
+                    () -> assertFalse(fragments.contains(new Rectangle(new Point(6, 6), new Point(7, 7)))),
+                    () -> assertFalse(fragments.contains(null))
+            );
+        }
+
+        @Test
+        @DisplayName("found by bounds after fragments move, are freed and reuse slots")
+        void find() {
+            FragmentStore fragments = new FragmentStore();
+            int moved = fragments.add(0, 0, 5, 5);
+            int freed = fragments.add(6, 6, 7, 7);
+            assertEquals(freed, fragments.find(6, 6, 7, 7)); // builds the lookup table
+            fragments.update(moved, 0, 0, 5, 4);
+            fragments.free(freed);
+            int reused = fragments.add(8, 8, 9, 9);
+            assertAll(
+                    () -> assertEquals(moved, fragments.find(0, 0, 5, 4)),
+                    () -> assertEquals(-1, fragments.find(0, 0, 5, 5)),
+                    () -> assertEquals(-1, fragments.find(6, 6, 7, 7)),
+                    () -> assertEquals(reused, fragments.find(8, 8, 9, 9))
+            );
+        }
+
+        @Test
+        @DisplayName("agrees with a scan of every slot through heavy churn")
+        void churn() {
+            FragmentStore fragments = new FragmentStore();
+            Random random = new Random(11);
+            fragments.find(0, 0, 0, 0);
+            for (int step = 0; step < 20_000; step++) {
+                int x = random.nextInt(30);
+                int y = random.nextInt(30);
+                int slot = fragments.find(x, y, x, y);
+                if (slot >= 0) {
+                    fragments.free(slot);
+                } else {
+                    fragments.add(x, y, x, y);
+                }
+            }
+            for (int x = 0; x < 30; x++) {
+                for (int y = 0; y < 30; y++) {
+                    int found = -1;
+                    for (int slot = 0; slot < fragments.end(); slot++) {
+                        if (fragments.isLive(slot) && fragments.left(slot) == x && fragments.bottom(slot) == y) {
+                            found = slot;
+                        }
+                    }
+                    assertEquals(found, fragments.find(x, y, x, y));
+                }
+            }
+        }
+    }
+
+    @DisplayName("replace")
+    static class Replace {
+
+        @Test
+        @DisplayName("the first piece keeps the slot")
+        void keepsSlot() {
+            FragmentStore fragments = new FragmentStore();
+            int slot = fragments.add(0, 0, 9, 9);
+            int[] slots = new int[2];
+            fragments.replace(slot, new int[]{0, 0, 9, 4, 0, 6, 9, 9}, 2, slots);
+            assertAll(
+                    () -> assertEquals(slot, slots[0]),
+                    () -> assertEquals(2, fragments.size()),
+                    () -> assertEquals(new Rectangle(new Point(0, 0), new Point(9, 4)), fragments.rectangle(slots[0])),
+                    () -> assertEquals(new Rectangle(new Point(0, 6), new Point(9, 9)), fragments.rectangle(slots[1])),
+                    () -> assertTrue(fragments.contains(new Rectangle(new Point(0, 6), new Point(9, 9))))
+            );
+        }
+
+        @Test
+        @DisplayName("no pieces frees the slot")
+        void noPieces() {
+            FragmentStore fragments = new FragmentStore();
+            int slot = fragments.add(0, 0, 9, 9);
+            fragments.replace(slot, new int[0], 0, new int[0]);
+            assertAll(
+                    () -> assertEquals(0, fragments.size()),
+                    () -> assertFalse(fragments.isLive(slot))
+            );
+        }
+    }
+}
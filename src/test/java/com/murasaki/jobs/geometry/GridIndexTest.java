@@ -0,0 +1,71 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("grid index")
+class GridIndexTest {
+
+    @DisplayName("intersecting")
+    static class Intersecting {
+
+        Rectangle bounds = new Rectangle(new Point(0, 0), new Point(399, 599));
+        FragmentStore fragments = new FragmentStore();
+        GridIndex index = new GridIndex(bounds, fragments);
+
+        int add(int left, int bottom, int right, int top) {
+            int slot = fragments.add(left, bottom, right, top);
+            index.add(slot);
+            return slot;
+        }
+
+        @Test
+        @DisplayName("finds only intersecting fragments")
+        void onlyIntersecting() {
+            int slot1 = add(0, 0, 10, 10);
+            int slot2 = add(200, 300, 399, 599);
+            add(390, 0, 399, 10);
+            int count = index.intersecting(5, 5, 250, 350);
+            assertAll(
+                    () -> assertEquals(2, count),
+                    () -> assertEquals(slot1, Math.min(index.result(0), index.result(1))),
+                    () -> assertEquals(slot2, Math.max(index.result(0), index.result(1)))
+            );
+        }
+
+        @Test
+        @DisplayName("fragments spanning several cells are found once")
+        void foundOnce() {
+            add(0, 0, 399, 599);
+            assertEquals(1, index.intersecting(0, 0, 399, 599));
+        }
+
+        @Test
+        @DisplayName("nearby but disjoint fragments are not found")
+        void disjoint() {
+            add(0, 0, 10, 10);
+            assertEquals(0, index.intersecting(11, 0, 12, 10));
+        }
+
+        @Test
+        @DisplayName("removed fragments are not found")
+        void removed() {
+            int slot = add(0, 0, 399, 599);
+            index.remove(slot);
+            fragments.free(slot);
+            assertEquals(0, index.intersecting(0, 0, 399, 599));
+        }
+
+        @Test
+        @DisplayName("query outside of the bounds")
+        void outsideBounds() {
+            add(0, 0, 399, 599);
+            assertAll(
+                    () -> assertEquals(0, index.intersecting(400, 0, 500, 10)),
+                    () -> assertEquals(1, index.intersecting(-5, -5, 0, 0))
+            );
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("index order")
+class IndexOrderTest {
+
+    @Test
+    @DisplayName("sorted by each key in turn")
+    void lexicographic() {
+        int[] first = {2, 1, 2, 1, -5};
+        int[] second = {0, 7, -1, 7, 3};
+        int[] third = {9, 4, 9, 3, 0};
+        assertArrayEquals(new int[]{4, 3, 1, 2, 0}, IndexOrder.sorted(5, first, second, third));
+    }
+
+    @Test
+    @DisplayName("equal keys keep their order")
+    void stable() {
+        int[] keys = {1, 0, 1, 0};
+        assertArrayEquals(new int[]{1, 3, 0, 2}, IndexOrder.sorted(4, keys));
+    }
+}
@@ -0,0 +1,84 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("live components")
+class LiveComponentsTest {
+
+    @Test
+    @DisplayName("found from the fragments already held")
+    void initial() {
+        FragmentStore fragments = new FragmentStore();
+        int a = fragments.add(0, 0, 4, 4);
+        int b = fragments.add(5, 0, 9, 2);
+        int c = fragments.add(20, 20, 20, 20);
+        LiveComponents components = new LiveComponents(fragments);
+        assertAll(
+                () -> assertEquals(2, components.size()),
+                () -> assertEquals(components.componentOf(a), components.componentOf(b)),
+                () -> assertNotEquals(components.componentOf(a), components.componentOf(c)),
+                () -> assertEquals("1 40", components.sortedAreasAsString())
+        );
+    }
+
+    @Test
+    @DisplayName("a component cut in two is split")
+    void split() {
+        FragmentStore fragments = new FragmentStore();
+        int bar = fragments.add(0, 0, 9, 0);
+        LiveComponents components = new LiveComponents(fragments);
+        // remove the middle square of the bar, leaving a piece either side
+        int component = components.detach(bar);
+        fragments.free(bar);
+        int left = fragments.add(0, 0, 3, 0);
+        int right = fragments.add(5, 0, 9, 0);
+        components.attach(left, component);
+        components.attach(right, component);
+        components.settle();
+        assertAll(
+                () -> assertEquals(2, components.size()),
+                () -> assertNotEquals(components.componentOf(left), components.componentOf(right)),
+                () -> assertEquals("4 5", components.sortedAreasAsString())
+        );
+    }
+
+    @Test
+    @DisplayName("a component with nothing left is dropped")
+    void dropped() {
+        FragmentStore fragments = new FragmentStore();
+        int a = fragments.add(0, 0, 1, 1);
+        fragments.add(5, 5, 6, 6);
+        LiveComponents components = new LiveComponents(fragments);
+        components.detach(a);
+        fragments.free(a);
+        components.settle();
+        assertAll(
+                () -> assertEquals(1, components.size()),
+                () -> assertEquals("4", components.sortedAreasAsString())
+        );
+    }
+
+    @Test
+    @DisplayName("a component known to stay connected keeps its new area without being split")
+    void knownConnected() {
+        FragmentStore fragments = new FragmentStore();
+        int square = fragments.add(0, 0, 2, 2);
+        LiveComponents components = new LiveComponents(fragments);
+        // take a bite out of one corner, leaving an L shape
+        int component = components.detach(square);
+        fragments.free(square);
+        int bottom = fragments.add(0, 0, 2, 1);
+        int left = fragments.add(0, 2, 1, 2);
+        components.attach(bottom, component);
+        components.attach(left, component);
+        components.settle(false);
+        assertAll(
+                () -> assertEquals(1, components.size()),
+                () -> assertEquals(components.componentOf(bottom), components.componentOf(left)),
+                () -> assertEquals("8", components.sortedAreasAsString())
+        );
+    }
+}
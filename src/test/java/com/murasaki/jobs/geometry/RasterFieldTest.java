@@ -0,0 +1,96 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("raster field")
+class RasterFieldTest {
+
+    @DisplayName("sorted areas")
+    static class SortedAreas {
+
+        Rectangle startingGreen = new Rectangle(new Point(0, 0), new Point(399, 599));
+
+        @Test
+        @DisplayName("nothing removed")
+        void nothingRemoved() {
+            RasterField field = new RasterField(startingGreen);
+            assertEquals("240000", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("everything removed")
+        void everythingRemoved() {
+            RasterField field = new RasterField(startingGreen);
+            field.remove(new Rectangle(new Point(-10, -10), new Point(1000, 1000)));
+            assertEquals("", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("split in half")
+        void splitInHalf() {
+            RasterField field = new RasterField(startingGreen);
+            field.remove(new Rectangle(new Point(0, 292), new Point(399, 307)));
+            assertEquals("116800 116800", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("enclosed patch")
+        void enclosed() {
+            RasterField field = new RasterField(new Rectangle(new Point(0, 0), new Point(63, 9)));
+            field.remove(new Rectangle(new Point(10, 2), new Point(20, 2)));
+            field.remove(new Rectangle(new Point(10, 6), new Point(20, 6)));
+            field.remove(new Rectangle(new Point(10, 3), new Point(10, 5)));
+            field.remove(new Rectangle(new Point(20, 3), new Point(20, 5)));
+            assertEquals("27 585", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("offset field")
+        void offsetField() {
+            RasterField field = new RasterField(new Rectangle(new Point(100, -50), new Point(109, -41)));
+            field.remove(new Rectangle(new Point(104, -60), new Point(105, 0)));
+            assertEquals("40 40", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("same areas as the fragment field")
+        void sameAsFragmentField() {
+            Random random = new Random(3);
+            for (int width : new int[]{1, 62, 63, 64, 65, 130}) {
+                for (int run = 0; run < 20; run++) {
+                    Rectangle green = new Rectangle(new Point(0, 0), new Point(width - 1, 40));
+                    List<Rectangle> barren = new ArrayList<>();
+                    for (int i = 0; i < 12; i++) {
+                        int x = random.nextInt(width);
+                        int y = random.nextInt(41);
+                        barren.add(new Rectangle(new Point(x, y),
+                                new Point(x + random.nextInt(width / 3 + 1), y + random.nextInt(12))));
+                    }
+                    RasterField raster = new RasterField(green);
+                    RectangleField fragments = new RectangleField(green);
+                    raster.removeAll(barren);
+                    fragments.removeAll(barren);
+                    assertEquals(fragments.sortedAreasAsStrings(), raster.sortedAreasAsStrings());
+                }
+            }
+        }
+    }
+
+    @DisplayName("constructor")
+    static class Constructor {
+
+        @Test
+        @DisplayName("too large for a raster")
+        void tooLarge() {
+            Rectangle huge = new Rectangle(new Point(0, 0), new Point(1_000_000, 1_000_000));
+            assertThrows(IllegalArgumentException.class, () -> new RasterField(huge));
+        }
+    }
+}
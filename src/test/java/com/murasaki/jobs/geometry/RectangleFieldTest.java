@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -71,6 +72,150 @@ class RectangleFieldTest {
             );
         }
 
+        @Test
+        @DisplayName("fields as wide as an int can hold")
+        void extremeBounds() {
+            RectangleField widest = new RectangleField(new Rectangle(new Point(0, 0), new Point(2147483646, 1)));
+            widest.remove(new Rectangle(new Point(0, 0), new Point(5, 0)));
+            RectangleField whole = new RectangleField(
+                    new Rectangle(new Point(Integer.MIN_VALUE, 0), new Point(Integer.MAX_VALUE, 1)));
+            whole.remove(new Rectangle(new Point(-1, 0), new Point(0, 1)));
+            whole.remove(new Rectangle(new Point(Integer.MAX_VALUE, 1), new Point(Integer.MAX_VALUE, 1)));
+            assertAll(
+                    () -> assertEquals("4294967288", widest.sortedAreasAsStrings()),
+                    () -> assertEquals("4294967293 4294967294", whole.sortedAreasAsStrings())
+            );
+        }
+
+    }
+
+    @DisplayName("coalesce")
+    static class Coalesce {
+
+        @Test
+        @DisplayName("merges fragments back into maximal rectangles")
+        void merges() {
+            RectangleField rectangleField = new RectangleField(new Rectangle(new Point(0, 0), new Point(9, 9)));
+            rectangleField.remove(new Rectangle(new Point(4, 4), new Point(5, 5)));
+            assertEquals(8, rectangleField.rectangles.size());
+            rectangleField.coalesce();
+            assertAll(
+                    () -> assertEquals(4, rectangleField.rectangles.size()),
+                    () -> assertEquals(96, rectangleField.rectangles.totalArea()),
+                    () -> assertEquals("96", rectangleField.sortedAreasAsStrings())
+            );
+        }
+
+        @Test
+        @DisplayName("does not merge partially shared edges")
+        void partialEdge() {
+            Rectangle rectangle1 = new Rectangle(new Point(0, 0), new Point(4, 4));
+            Rectangle rectangle2 = new Rectangle(new Point(5, 0), new Point(9, 3));
+            RectangleField rectangleField = new RectangleField(rectangle1, rectangle2);
+            rectangleField.coalesce();
+            assertAll(
+                    () -> assertEquals(2, rectangleField.rectangles.size()),
+                    () -> assertTrue(rectangleField.rectangles.contains(rectangle1)),
+                    () -> assertTrue(rectangleField.rectangles.contains(rectangle2))
+            );
+        }
+
+        @Test
+        @DisplayName("fragments stay findable after merging")
+        void indexRebuilt() {
+            RectangleField rectangleField = new RectangleField(new Rectangle(new Point(0, 0), new Point(9, 9)));
+            rectangleField.remove(new Rectangle(new Point(4, 4), new Point(5, 5)));
+            rectangleField.coalesce();
+            rectangleField.remove(new Rectangle(new Point(0, 0), new Point(9, 0)));
+            assertEquals("86", rectangleField.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("automatic coalescing gives the same areas")
+        void threshold() {
+            Random random = new Random(10);
+            for (int run = 0; run < 20; run++) {
+                Rectangle green = new Rectangle(new Point(0, 0), new Point(99, 99));
+                RectangleField plain = new RectangleField(green);
+                RectangleField coalescing = new RectangleField(green);
+                coalescing.setCoalesceThreshold(16);
+                for (int i = 0; i < 60; i++) {
+                    int x = random.nextInt(100);
+                    int y = random.nextInt(100);
+                    Rectangle barren = new Rectangle(new Point(x, y),
+                            new Point(x + random.nextInt(10), y + random.nextInt(10)));
+                    plain.remove(barren);
+                    coalescing.remove(barren);
+                }
+                assertEquals(plain.sortedAreasAsStrings(), coalescing.sortedAreasAsStrings());
+                assertTrue(coalescing.rectangles.size() <= plain.rectangles.size());
+            }
+        }
+    }
+
+    @DisplayName("tracked components")
+    static class TrackedComponents {
+
+        @Test
+        @DisplayName("areas after each removal")
+        void afterEachRemoval() {
+            RectangleField rectangleField = new RectangleField(new Rectangle(new Point(0, 0), new Point(399, 599)));
+            rectangleField.trackComponents();
+            assertEquals("240000", rectangleField.sortedAreasAsStrings());
+            rectangleField.remove(new Rectangle(new Point(48, 192), new Point(351, 207)));
+            assertEquals("235136", rectangleField.sortedAreasAsStrings());
+            rectangleField.remove(new Rectangle(new Point(48, 392), new Point(351, 407)));
+            assertEquals("230272", rectangleField.sortedAreasAsStrings());
+            rectangleField.remove(new Rectangle(new Point(120, 52), new Point(135, 547)));
+            assertEquals("222848", rectangleField.sortedAreasAsStrings());
+            rectangleField.remove(new Rectangle(new Point(260, 52), new Point(275, 547)));
+            assertEquals("22816 192608", rectangleField.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("same areas as recalculating, with and without coalescing")
+        void sameAsRecalculating() {
+            Random random = new Random(13);
+            for (int run = 0; run < 20; run++) {
+                Rectangle green = new Rectangle(new Point(0, 0), new Point(59, 79));
+                RectangleField plain = new RectangleField(green);
+                RectangleField tracked = new RectangleField(green);
+                tracked.trackComponents();
+                tracked.setCoalesceThreshold(run % 2 == 0 ? 0 : 32);
+                for (int i = 0; i < 40; i++) {
+                    int x = random.nextInt(60);
+                    int y = random.nextInt(80);
+                    Rectangle barren = new Rectangle(new Point(x, y),
+                            new Point(x + random.nextInt(30), y + random.nextInt(6)));
+                    plain.remove(barren);
+                    tracked.remove(barren);
+                    assertEquals(plain.sortedAreasAsStrings(), tracked.sortedAreasAsStrings());
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("same areas as recalculating while small plots and thin walls are removed one at a time")
+        void smallPlots() {
+            Random random = new Random(31);
+            for (int run = 0; run < 10; run++) {
+                Rectangle green = new Rectangle(new Point(0, 0), new Point(39, 29));
+                RectangleField plain = new RectangleField(green);
+                RectangleField tracked = new RectangleField(green);
+                tracked.trackComponents();
+                for (int i = 0; i < 150; i++) {
+                    int x = random.nextInt(42) - 1;
+                    int y = random.nextInt(32) - 1;
+                    boolean wall = random.nextInt(4) == 0;
+                    int width = wall && random.nextBoolean() ? random.nextInt(20) : random.nextInt(2);
+                    int height = wall && width < 2 ? random.nextInt(20) : random.nextInt(2);
+                    Rectangle barren = new Rectangle(new Point(x, y), new Point(x + width, y + height));
+                    plain.remove(barren);
+                    tracked.remove(barren);
+                    assertEquals(plain.sortedAreasAsStrings(), tracked.sortedAreasAsStrings(), barren.toString());
+                }
+            }
+        }
     }
 
     @DisplayName("intersecting rectangles")
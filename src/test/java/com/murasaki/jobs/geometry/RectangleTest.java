@@ -3,6 +3,7 @@ package com.murasaki.jobs.geometry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
 
@@ -81,6 +82,13 @@ class RectangleTest {
             assertEquals(16, Rectangle.calculateArea(Collections.singleton(rectangle)));
         }
 
+        @Test
+        @DisplayName("area larger than an int")
+        void large() {
+            Rectangle rectangle = new Rectangle(new Point(0, 0), new Point(99_999, 99_999));
+            assertEquals(10_000_000_000L, rectangle.area());
+        }
+
     }
 
     @DisplayName("intersect")
@@ -152,6 +160,38 @@ class RectangleTest {
         }
     }
 
+    @DisplayName("intersects")
+    static class Intersects {
+
+        Rectangle rectangle1 = new Rectangle(new Point(0, 0), new Point(2, 2));
+
+        @Test
+        @DisplayName("null rectangle")
+        void nullRectangle() {
+            assertFalse(rectangle1.intersects(null));
+        }
+
+        @Test
+        @DisplayName("overlapping")
+        void overlapping() {
+            Rectangle rectangle2 = new Rectangle(new Point(2, 2), new Point(5, 5));
+            assertAll(
+                    () -> assertTrue(rectangle1.intersects(rectangle2)),
+                    () -> assertTrue(rectangle2.intersects(rectangle1))
+            );
+        }
+
+        @Test
+        @DisplayName("adjacent but not overlapping")
+        void adjacent() {
+            Rectangle rectangle2 = new Rectangle(new Point(3, 0), new Point(5, 2));
+            assertAll(
+                    () -> assertFalse(rectangle1.intersects(rectangle2)),
+                    () -> assertFalse(rectangle2.intersects(rectangle1))
+            );
+        }
+    }
+
     @DisplayName("aligns with")
     static class Alignment {
 
@@ -267,5 +307,44 @@ class RectangleTest {
                     () -> assertTrue(result.contains(new Rectangle(new Point(2, 3), new Point(2, 4))))
             );
         }
+
+        @Test
+        @DisplayName("into buffer")
+        void intoBuffer() {
+            Rectangle rectangle2 = new Rectangle(new Point(4, 4), new Point(7, 7));
+            int[] pieces = new int[36];
+            int count = rectangle1.remove(rectangle2, pieces, 4);
+            assertAll(
+                    () -> assertEquals(3, count),
+                    () -> assertArrayEquals(new int[]{4, 2, 6, 3}, Arrays.copyOfRange(pieces, 4, 8)),
+                    () -> assertArrayEquals(new int[]{2, 2, 3, 3}, Arrays.copyOfRange(pieces, 8, 12)),
+                    () -> assertArrayEquals(new int[]{2, 4, 3, 6}, Arrays.copyOfRange(pieces, 12, 16))
+            );
+        }
+
+        @Test
+        @DisplayName("into buffer without overlap")
+        void intoBufferWithoutOverlap() {
+            Rectangle rectangle2 = new Rectangle(new Point(7, 7), new Point(8, 8));
+            int[] pieces = new int[32];
+            assertAll(
+                    () -> assertEquals(1, rectangle1.remove(rectangle2, pieces, 0)),
+                    () -> assertArrayEquals(new int[]{2, 2, 6, 6}, Arrays.copyOfRange(pieces, 0, 4)),
+                    () -> assertEquals(1, rectangle1.remove(null, pieces, 0))
+            );
+        }
+
+        @Test
+        @DisplayName("at the limits of int")
+        void limits() {
+            Rectangle rectangle2 = new Rectangle(new Point(0, 0), new Point(Integer.MAX_VALUE, Integer.MAX_VALUE));
+            Rectangle rectangle3 = new Rectangle(new Point(0, 0), new Point(10, Integer.MAX_VALUE));
+            Set<Rectangle> result = rectangle2.remove(rectangle3);
+            assertAll(
+                    () -> assertEquals(1, result.size()),
+                    () -> assertTrue(result.contains(
+                            new Rectangle(new Point(11, 0), new Point(Integer.MAX_VALUE, Integer.MAX_VALUE))))
+            );
+        }
     }
-}
\ No newline at end of file
+}
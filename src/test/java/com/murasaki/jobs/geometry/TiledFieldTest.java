@@ -0,0 +1,69 @@
+package com.murasaki.jobs.geometry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("tiled field")
+class TiledFieldTest {
+
+    @DisplayName("sorted areas")
+    static class SortedAreas {
+
+        Rectangle startingGreen = new Rectangle(new Point(0, 0), new Point(399, 599));
+
+        @Test
+        @DisplayName("components crossing tile borders are stitched")
+        void stitched() {
+            TiledField field = new TiledField(startingGreen, 4, ForkJoinPool.commonPool());
+            field.remove(new Rectangle(new Point(48, 192), new Point(351, 207)));
+            field.remove(new Rectangle(new Point(48, 392), new Point(351, 407)));
+            field.remove(new Rectangle(new Point(120, 52), new Point(135, 547)));
+            field.remove(new Rectangle(new Point(260, 52), new Point(275, 547)));
+            assertEquals("22816 192608", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("nothing removed")
+        void nothingRemoved() {
+            TiledField field = new TiledField(startingGreen, 3, ForkJoinPool.commonPool());
+            assertEquals("240000", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("more tiles than squares")
+        void moreTilesThanSquares() {
+            TiledField field = new TiledField(new Rectangle(new Point(0, 0), new Point(2, 0)), 8,
+                    ForkJoinPool.commonPool());
+            field.remove(new Rectangle(new Point(1, 0), new Point(1, 0)));
+            assertEquals("1 1", field.sortedAreasAsStrings());
+        }
+
+        @Test
+        @DisplayName("same areas as the fragment field")
+        void sameAsFragmentField() {
+            Random random = new Random(8);
+            for (int run = 0; run < 50; run++) {
+                Rectangle green = new Rectangle(new Point(0, 0), new Point(59, 79));
+                List<Rectangle> barren = new ArrayList<>();
+                for (int i = 0; i < 25; i++) {
+                    int x = random.nextInt(60);
+                    int y = random.nextInt(80);
+                    barren.add(new Rectangle(new Point(x, y),
+                            new Point(x + random.nextInt(30), y + random.nextInt(6))));
+                }
+                TiledField tiled = new TiledField(green, 1 + run % 7, ForkJoinPool.commonPool());
+                RectangleField fragments = new RectangleField(green);
+                tiled.removeAll(barren);
+                fragments.removeAll(barren);
+                assertEquals(fragments.sortedAreasAsStrings(), tiled.sortedAreasAsStrings());
+            }
+        }
+    }
+}